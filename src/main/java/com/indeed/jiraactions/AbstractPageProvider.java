@@ -0,0 +1,137 @@
+package com.indeed.jiraactions;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Stopwatch;
+import com.indeed.jiraactions.api.IssueAPIParser;
+import com.indeed.jiraactions.api.customfields.CustomFieldDefinition;
+import com.indeed.jiraactions.api.response.issue.Issue;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Everything a {@link PageProvider} does once it has the issues: building actions and writing them out. Subclasses
+ * only decide where the pages of issues come from.
+ */
+public abstract class AbstractPageProvider implements PageProvider {
+    private static final Logger log = LoggerFactory.getLogger(AbstractPageProvider.class);
+
+    protected final ActionFactory actionFactory;
+    private final TsvFileWriter tsvFileWriter;
+
+    private final DateTime startDate;
+    private final DateTime endDate;
+    @Nullable
+    private final DateTime foldBefore; // Nothing before this is ever written, even to a snapshot
+    private final Set<CustomFieldDefinition> customFieldsSeen;
+    @Nullable
+    protected final Set<String> customFieldIds; // The only custom fields worth decoding
+
+    protected long apiTime = 0;
+    private final AtomicLong processTime = new AtomicLong(); // Actions may be built on several threads at once
+    private long fileTime = 0;
+
+    protected AbstractPageProvider(final ActionFactory actionFactory, final JiraActionsIndexBuilderConfig config,
+                                   final TsvFileWriter tsvFileWriter) {
+        this.actionFactory = actionFactory;
+        this.tsvFileWriter = tsvFileWriter;
+
+        this.startDate = JiraActionsUtil.parseDateTime(config.getStartDate());
+        this.endDate = JiraActionsUtil.parseDateTime(config.getEndDate());
+        this.foldBefore = config.getBuildFoldPreWindow()
+                ? startDate.minusMonths(config.getSnapshotLookbackMonths())
+                : null;
+        this.customFieldsSeen = ConcurrentHashMap.newKeySet(config.getCustomFields().length);
+        this.customFieldIds = IssueAPIParser.getCustomFieldIds(config.getCustomFields());
+    }
+
+    public long getApiTime() {
+        return apiTime;
+    }
+
+    public long getProcessingTime() {
+        return processTime.get();
+    }
+
+    public long getFileWritingTime() {
+        return fileTime;
+    }
+
+    public Set<CustomFieldDefinition> getCustomFieldsSeen() {
+        return customFieldsSeen;
+    }
+
+    @Override
+    @Nullable
+    public Issue processNode(final JsonNode issueNode) {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final Issue issue = IssueAPIParser.getObject(issueNode, customFieldIds);
+        stopwatch.stop();
+
+        processTime.addAndGet(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+
+        if (issue == null) {
+            log.error("null issue after parsing: " + issueNode.toString());
+        }
+
+        return issue;
+    }
+
+    @Override
+    public List<Action> getActions(final Issue issue) throws IOException {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final ActionsBuilder actionsBuilder = new ActionsBuilder(actionFactory, issue, startDate, endDate, foldBefore);
+        final List<Action> actions = actionsBuilder.buildActions();
+        stopwatch.stop();
+
+        processTime.addAndGet(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+
+        actions.stream()
+                .map(action -> action.getCustomFieldValues().entrySet())
+                .flatMap(Set::stream)
+                .filter(v -> !v.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .forEach(customFieldsSeen::add);
+
+        return actions;
+    }
+
+    @Override
+    public Action getJiraissues(final Action action, final Issue issue) {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final ActionsBuilder actionsBuilder = new ActionsBuilder(actionFactory, issue, startDate, endDate);
+        final Action updatedAction = actionsBuilder.buildJiraIssues(action);
+        stopwatch.stop();
+
+        processTime.addAndGet(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+
+        return updatedAction;
+    }
+
+    @Override
+    public void writeActions(final List<Action> actions) throws IOException {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        tsvFileWriter.writeActions(actions);
+        stopwatch.stop();
+
+        fileTime += stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void writeIssue(final Action action) throws IOException {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        tsvFileWriter.writeIssue(action);
+        stopwatch.stop();
+
+        fileTime += stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    }
+}
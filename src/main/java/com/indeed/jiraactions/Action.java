@@ -16,7 +16,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/*
+ * Collections are kept as they're given instead of being copied into new ones, so each action can share most of its
+ * links, status times and status history with the one before it (see ActionFactory). Whatever builds an action has
+ * to give it collections that won't change afterwards.
+ */
 @Value.Immutable
+@Value.Modifiable
+@Value.Style(builtinContainerAttributes = false)
 public interface Action {
     String getAction();
     User getActor();
@@ -1,9 +1,13 @@
 package com.indeed.jiraactions;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.indeed.jiraactions.api.customfields.CustomFieldApiParser;
 import com.indeed.jiraactions.api.customfields.CustomFieldDefinition;
+import com.indeed.jiraactions.api.customfields.CustomFieldValue;
+import com.indeed.jiraactions.api.links.Link;
 import com.indeed.jiraactions.api.links.LinkFactory;
 import com.indeed.jiraactions.api.response.issue.Issue;
 import com.indeed.jiraactions.api.response.issue.User;
@@ -12,18 +16,24 @@ import com.indeed.jiraactions.api.response.issue.changelog.histories.Item;
 import com.indeed.jiraactions.api.response.issue.fields.comment.Comment;
 import com.indeed.jiraactions.api.statustimes.StatusTime;
 import com.indeed.jiraactions.api.statustimes.StatusTimeFactory;
+import com.indeed.jiraactions.collections.AppendOnlyList;
+import com.indeed.jiraactions.collections.CopyOnWriteSet;
 import org.apache.commons.lang.StringUtils;
 import org.joda.time.DateTime;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
 
 public class ActionFactory {
+    private static final String[] USER_FIELDS = { "assignee", "reporter" };
+
     private final UserLookupService userLookupService;
     private final CustomFieldApiParser customFieldParser;
     private final JiraActionsIndexBuilderConfig config;
@@ -39,10 +49,53 @@ public class ActionFactory {
         this.config = config;
     }
 
+    /**
+     * Resolves every user the actions for these issues will refer to at once, rather than one lookup at a time as
+     * each action is built.
+     */
+    public void prefetchUsers(final Collection<Issue> issues) {
+        final Set<String> keys = new HashSet<>();
+        for (final Issue issue : issues) {
+            addUserKey(keys, issue.fields.assignee);
+            addUserKey(keys, issue.fields.reporter);
+            addUserKey(keys, issue.fields.creator);
+            for (final History history : issue.changelog.histories) {
+                addUserKey(keys, history.author);
+                for (final String field : USER_FIELDS) {
+                    for (final Item item : history.getAllItems(field)) {
+                        if (!item.customField) {
+                            keys.add(item.from);
+                            keys.add(item.to);
+                        }
+                    }
+                }
+            }
+            if (issue.fields.comment != null) {
+                for (final Comment comment : issue.fields.comment.comments) {
+                    addUserKey(keys, comment.author);
+                }
+            }
+            for (final CustomFieldDefinition customFieldDefinition : config.getCustomFields()) {
+                customFieldParser.collectUserKeys(customFieldDefinition, issue, keys);
+            }
+        }
+        keys.remove(null);
+        userLookupService.prefetchUsers(keys);
+    }
+
+    private static void addUserKey(final Set<String> keys, @Nullable final User user) {
+        if (user != null) {
+            keys.add(user.getKey());
+        }
+    }
+
     public Action create(final Issue issue) throws IOException {
         final User assignee = userLookupService.getUser(issue.initialValueKey("assignee", "assigneekey"));
         final User reporter = userLookupService.getUser(issue.initialValueKey("reporter", "reporterkey"));
         final User creator = issue.fields.creator == null ? User.INVALID_USER : userLookupService.getUser(issue.fields.creator.getKey());
+        final String issueKey = issue.initialValue("key");
+        final String status = issue.initialValue("status");
+        final String resolutionDate = issue.initialValue("resolutiondate");
 
         final ImmutableAction.Builder builder = ImmutableAction.builder()
                 .action("create")
@@ -50,7 +103,7 @@ public class ActionFactory {
                 .assignee(assignee)
                 .fieldschanged("created")
                 .issueage(0)
-                .issuekey(issue.initialValue("key").equals("") ? issue.key : issue.initialValue("key"))
+                .issuekey(issueKey.equals("") ? issue.key : issueKey)
                 .issuetype(issue.initialValue("issuetype"))
                 .priority(issue.initialValue("priority"))
                 .project(issue.initialValue("project"))
@@ -58,35 +111,37 @@ public class ActionFactory {
                 .prevstatus("")
                 .reporter(reporter)
                 .resolution(issue.initialValue("resolution"))
-                .status(issue.initialValue("status"))
+                .status(status)
                 .summary(issue.initialValue("summary"))
                 .timeinstate(0)
                 .timesinceaction(0)
                 .timestamp(issue.fields.created)
                 .category(issue.initialValue("category"))
-                .fixVersions(Issues.split(issue.initialValue("fixversions")))
+                .fixVersions(ImmutableList.copyOf(Issues.split(issue.initialValue("fixversions"))))
                 .dueDate(issue.initialValue("duedate"))
-                .components(Issues.split(issue.initialValue("component")))
+                .components(ImmutableList.copyOf(Issues.split(issue.initialValue("component"))))
                 .labels(issue.initialValue("labels"))
-                .createdDate(issue.fields.created.toString("yyyy-MM-dd"))
-                .createdDateLong(Long.parseLong(issue.fields.created.toString("yyyyMMdd")))
-                .createdDateTimeLong(Long.parseLong(issue.fields.created.toString("yyyyMMddHHmmss")))
+                .createdDate(JiraActionsUtil.toDateString(issue.fields.created))
+                .createdDateLong(JiraActionsUtil.toDateLong(issue.fields.created))
+                .createdDateTimeLong(JiraActionsUtil.toDateTimeLong(issue.fields.created))
                 .createdDateTimestamp(issue.fields.created.getMillis() / 1000)
                 .lastUpdated(0)
                 .closedDate(0)
-                .resolutionDate(JiraActionsUtil.parseDateTime(issue.initialValue("resolutiondate")).toString("yyyy-MM-dd"))
-                .resolutionDateLong(parseDate(issue.initialValue("resolutiondate")))
-                .resolutionDateTimeLong(parseDateTime(issue.initialValue("resolutiondate")))
-                .resolutionDateTimestamp(parseTimestamp(issue.initialValue("resolutiondate")) / 1000)
+                .resolutionDate(JiraActionsUtil.toDateString(JiraActionsUtil.parseDateTime(resolutionDate)))
+                .resolutionDateLong(parseDate(resolutionDate))
+                .resolutionDateTimeLong(parseDateTime(resolutionDate))
+                .resolutionDateTimestamp(parseTimestamp(resolutionDate) / 1000)
                 .comments(0)
                 .deliveryLeadTime(0)
-                .statusTimes(statusTimeFactory.firstStatusTime(issue.initialValue("status")))
-                .statusHistory(createStatusHistory(issue.initialValue("status")))
-                .links(Collections.emptySet());
+                .statusTimes(statusTimeFactory.firstStatusTime(status))
+                .statusHistory(createStatusHistory(status))
+                .links(CopyOnWriteSet.of());
 
+            final ImmutableMap.Builder<CustomFieldDefinition, CustomFieldValue> customFieldValues = ImmutableMap.builder();
             for (final CustomFieldDefinition customFieldDefinition : config.getCustomFields()) {
-                builder.putCustomFieldValues(customFieldDefinition, customFieldParser.parseInitialValue(customFieldDefinition, issue));
+                customFieldValues.put(customFieldDefinition, customFieldParser.parseInitialValue(customFieldDefinition, issue));
             }
+            builder.customFieldValues(customFieldValues.build());
 
         return builder.build();
     }
@@ -139,13 +194,101 @@ public class ActionFactory {
                 .links(linkFactory.mergeLinks(prevAction.getLinks(), history.getAllItems("link")))
                 .statusTimes(statusTimeFactory.getStatusTimeUpdate(prevAction.getStatusTimes(), history, prevAction))
                 .statusHistory(addStatusHistory(prevAction.getStatusHistory(), prevAction, history.itemExist("status") ? history.getItemLastValue("status") : prevAction.getStatus()));
+        final ImmutableMap.Builder<CustomFieldDefinition, CustomFieldValue> customFieldValues = ImmutableMap.builder();
         for (final CustomFieldDefinition customFieldDefinition : config.getCustomFields()) {
-            builder.putCustomFieldValues(customFieldDefinition, customFieldParser.parseNonInitialValue(customFieldDefinition, prevAction, history));
+            customFieldValues.put(customFieldDefinition, customFieldParser.parseNonInitialValue(customFieldDefinition, prevAction, history));
         }
+        builder.customFieldValues(customFieldValues.build());
 
         return builder.build();
     }
 
+    /**
+     * Applies {@code history} to {@code state} in place, the same as {@link #update(Action, History)} would, but
+     * without building an Action for it. This is for history that's only carried forward to later actions and is
+     * never written, so who made the change and which fields it changed are left out.
+     */
+    public void fold(final ModifiableAction state, final History history) {
+        // Work out everything that depends on the previous state before any of it changes
+        final String status = history.itemExist("status") ? history.getItemLastValue("status") : state.getStatus();
+        final long timeSinceAction = getTimeDiff(state.getTimestamp(), history.created);
+        final long timeInState = timeInState(state, history);
+        final long closedDate = getDateClosed(state, history);
+        final Set<Link> links = linkFactory.mergeLinks(state.getLinks(), history.getAllItems("link"));
+        final Map<String, StatusTime> statusTimes = statusTimeFactory.getStatusTimeUpdate(state.getStatusTimes(), history, state);
+        final List<String> statusHistory = addStatusHistory(state.getStatusHistory(), state, status);
+        final ImmutableMap.Builder<CustomFieldDefinition, CustomFieldValue> customFieldValues = ImmutableMap.builder();
+        for (final CustomFieldDefinition customFieldDefinition : config.getCustomFields()) {
+            customFieldValues.put(customFieldDefinition, customFieldParser.parseNonInitialValue(customFieldDefinition, state, history));
+        }
+
+        state.setAction("update")
+                .setActor(User.INVALID_USER)
+                .setFieldschanged("")
+                .setIssueage(state.getIssueage() + timeSinceAction)
+                .setPrevstatus(state.getStatus())
+                .setStatus(status)
+                .setTimeinstate(timeInState)
+                .setTimesinceaction(timeSinceAction)
+                .setTimestamp(history.created)
+                .setClosedDate(closedDate)
+                .setLastUpdated(0)
+                .setDeliveryLeadTime(0)
+                .setLinks(links)
+                .setStatusTimes(statusTimes)
+                .setStatusHistory(statusHistory)
+                .setCustomFieldValues(customFieldValues.build());
+        if (history.itemExist("assignee")) {
+            state.setAssignee(userLookupService.getUser(history.getItemLastValueKey("assignee")));
+        }
+        if (history.itemExist("reporter")) {
+            state.setReporter(userLookupService.getUser(history.getItemLastValueKey("reporter")));
+        }
+        if (history.itemExist("key")) {
+            state.setIssuekey(history.getItemLastValue("key"));
+        }
+        if (history.itemExist("issuetype")) {
+            state.setIssuetype(history.getItemLastValue("issuetype"));
+        }
+        if (history.itemExist("priority")) {
+            state.setPriority(history.getItemLastValue("priority"));
+        }
+        if (history.itemExist("project")) {
+            state.setProject(history.getItemLastValue("project"));
+        }
+        if (history.itemExist("projectkey")) {
+            state.setProjectkey(history.getItemLastValue("projectkey"));
+        }
+        if (history.itemExist("resolution")) {
+            state.setResolution(history.getItemLastValue("resolution"));
+        }
+        if (history.itemExist("summary")) {
+            state.setSummary(history.getItemLastValue("summary"));
+        }
+        if (history.itemExist("category")) {
+            state.setCategory(history.getItemLastValue("category"));
+        }
+        if (history.itemExist("fixversions")) {
+            state.setFixVersions(extractMultivaluedRichField("fixversions", Action::getFixVersions, state, history));
+        }
+        if (history.itemExist("duedate")) {
+            state.setDueDate(history.getItemLastValue("duedate").replace(" 00:00:00.0", ""));
+        }
+        if (history.itemExist("component")) {
+            state.setComponents(extractMultivaluedRichField("component", Action::getComponents, state, history));
+        }
+        if (history.itemExist("labels")) {
+            state.setLabels(history.getItemLastValue("labels"));
+        }
+        if (history.itemExist("resolutiondate")) {
+            final String resolutionDate = history.getItemLastValue("resolutiondate");
+            state.setResolutionDate(resolutionDate)
+                    .setResolutionDateLong(parseDate(resolutionDate))
+                    .setResolutionDateTimeLong(parseDateTime(resolutionDate))
+                    .setResolutionDateTimestamp(parseTimestamp(resolutionDate));
+        }
+    }
+
     /**
      * Jira's changelog behaves a little counterintuitively for multivalued rich objects. A single history entry can
      *  include multiple items with the field, and the from/to values of the item are specific
@@ -161,14 +304,15 @@ public class ActionFactory {
     ) {
         final List<String> values;
         if (history.itemExist(field)) {
-            values = Lists.newArrayList(getter.apply(prevAction));
+            final List<String> changed = Lists.newArrayList(getter.apply(prevAction));
             for (Item item: history.getAllItems(field)) {
                 if (Strings.isNullOrEmpty(item.toString)) {
-                    values.remove(item.fromString);
+                    changed.remove(item.fromString);
                 } else {
-                    values.add(item.toString);
+                    changed.add(item.toString);
                 }
             }
+            values = ImmutableList.copyOf(changed);
         } else {
             values = getter.apply(prevAction);
         }
@@ -197,7 +341,7 @@ public class ActionFactory {
                 .from(prevAction)
                 .issueage(prevAction.getIssueage() + getTimeDiff(prevAction.getTimestamp(), JiraActionsUtil.parseDateTime(config.getEndDate())))
                 .timestamp(JiraActionsUtil.parseDateTime(config.getEndDate()))
-                .lastUpdated(Integer.parseInt(prevAction.getTimestamp().toString("yyyyMMdd")))
+                .lastUpdated((int) JiraActionsUtil.toDateLong(prevAction.getTimestamp()))
                 .statusTimes(statusTimeFactory.getStatusTimeCurrent(prevAction.getStatusTimes(), prevAction, JiraActionsUtil.parseDateTime(config.getEndDate())))
                 .deliveryLeadTime(getDeliveryLeadTime(statusTimeFactory.getStatusTimeCurrent(prevAction.getStatusTimes(), prevAction, JiraActionsUtil.parseDateTime(config.getEndDate())), prevAction))
                 .build();
@@ -223,7 +367,7 @@ public class ActionFactory {
         if (StringUtils.isEmpty(isoDateString)) {
             return 0;
         } else {
-            return Long.parseLong(JiraActionsUtil.parseDateTime(isoDateString).toString("yyyyMMdd"));
+            return JiraActionsUtil.toDateLong(JiraActionsUtil.parseDateTime(isoDateString));
         }
     }
 
@@ -231,7 +375,7 @@ public class ActionFactory {
         if (StringUtils.isEmpty(isoDateString)) {
             return 0;
         } else {
-            return Long.parseLong(JiraActionsUtil.parseDateTime(isoDateString).toString("yyyyMMddHHmmss"));
+            return JiraActionsUtil.toDateTimeLong(JiraActionsUtil.parseDateTime(isoDateString));
         }
     }
 
@@ -249,7 +393,7 @@ public class ActionFactory {
             if (prevAction.getStatus().equals(status)) {
                 return prevAction.getClosedDate();
             }
-            return Integer.parseInt(history.created.toString("yyyyMMdd"));
+            return JiraActionsUtil.toDateLong(history.created);
         }
         return 0;
     }
@@ -259,17 +403,14 @@ public class ActionFactory {
     }
 
     private List<String> createStatusHistory(final String status) {
-        final List<String> statusHistory = new ArrayList<>();
-        statusHistory.add(status);
-        return statusHistory;
+        return AppendOnlyList.of(status);
     }
 
     private List<String> addStatusHistory(final List<String> prevHistory, final Action prevAction, final String status) {
-        final List<String> statusHistory = new ArrayList<>(prevHistory);
         if (!status.equals(prevAction.getStatus())) {
-            statusHistory.add(status);
+            return AppendOnlyList.copyOf(prevHistory).plus(status);
         }
-        return statusHistory;
+        return prevHistory;
     }
 
     private long getDeliveryLeadTime(final Map<String, StatusTime> statusTimes, final Action action) {
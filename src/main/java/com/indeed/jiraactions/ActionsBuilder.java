@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 import org.joda.time.DateTime;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -18,24 +19,35 @@ public class ActionsBuilder {
     private final Issue issue;
     private final DateTime startDate;
     private final DateTime endDate;
-    private final List<Action> actions;
+    @Nullable
+    private final DateTime foldBefore;
     private final ActionFactory actionFactory;
 
     public ActionsBuilder(final ActionFactory actionFactory, final Issue issue, final DateTime startDate, final DateTime endDate) {
+        this(actionFactory, issue, startDate, endDate, null);
+    }
+
+    /**
+     * @param foldBefore if not null, history before this is only folded into the state later actions start from,
+     *                   and only the last of those actions is returned (so callers can still tell when the issue
+     *                   last changed). Everything at or after it is built exactly as without folding.
+     */
+    public ActionsBuilder(final ActionFactory actionFactory, final Issue issue, final DateTime startDate,
+                          final DateTime endDate, @Nullable final DateTime foldBefore) {
         this.actionFactory = actionFactory;
         this.issue = issue;
         this.startDate = startDate;
         this.endDate = endDate;
-
-        actions = new ArrayList<>(issue.changelog.histories.length + issue.fields.comment.comments.length);
+        this.foldBefore = foldBefore;
     }
 
     @Nonnull
     public List<Action> buildActions() throws IOException {
-        setCreateAction();
-        setUpdateActions();
-        setCommentActions();
-        return actions;
+        final Timeline timeline = new Timeline(actionFactory.create(issue));
+        setUpdateSteps(timeline);
+        setCommentSteps(timeline);
+        timeline.markNeeded();
+        return timeline.build();
     }
 
     @Nonnull
@@ -43,27 +55,19 @@ public class ActionsBuilder {
         return setUpdateToCurrent(action);
     }
 
-    //
-    // For Create Action
-    //
-
-    private void setCreateAction() throws IOException {
-        final Action createAction = actionFactory.create(issue);
-        actions.add(createAction);
-    }
-
     //
     // For Update Action
     //
 
-    private void setUpdateActions() {
+    private void setUpdateSteps(final Timeline timeline) {
         issue.changelog.sortHistories();
 
-        Action prevAction = actions.get(actions.size()-1); // safe because we always add the create action
+        Step prevStep = timeline.steps.get(0); // safe because we always add the create action
         for (final History history : issue.changelog.histories) {
-            final Action updateAction = actionFactory.update(prevAction, history);
-            actions.add(updateAction);
-            prevAction = updateAction;
+            final Step updateStep = new Step(history.created, prevStep, history, null);
+            timeline.steps.add(updateStep);
+            timeline.updates.add(updateStep);
+            prevStep = updateStep;
         }
     }
 
@@ -71,23 +75,25 @@ public class ActionsBuilder {
     // For Comment Action
     //
 
-    private void setCommentActions() {
+    private void setCommentSteps(final Timeline timeline) {
         issue.fields.comment.sortComments();
 
+        final List<Step> steps = timeline.steps;
         int currentActionIndex = 0;
         for (final Comment comment : issue.fields.comment.comments) {
             while (true) {
-                if (commentIsRightAfter(comment, currentActionIndex)) {
-                    final Action commentAction = actionFactory.comment(actions.get(currentActionIndex), comment);
-                    actions.add(currentActionIndex + 1, commentAction);
+                if (commentIsRightAfter(comment, steps, currentActionIndex)) {
+                    final Step commentStep = new Step(comment.created, steps.get(currentActionIndex), null, comment);
+                    steps.add(currentActionIndex + 1, commentStep);
+                    timeline.comments.add(commentStep);
                     break;
                 } else {
                     currentActionIndex++;
-                    if (currentActionIndex >= actions.size()) {
+                    if (currentActionIndex >= steps.size()) {
                     /* You'd think this would never happen, but it can. I found legitimate examples with a comment
                      * on a ticket *before* that ticket was created.
                      */
-                        if (comment.created.isBefore(actions.get(0).getTimestamp())) {
+                        if (comment.created.isBefore(steps.get(0).timestamp)) {
                             LOG.debug("Skipping comment {} on {} because it's before the issue was created.",
                                     comment.id, issue.key);
                         } else {
@@ -110,20 +116,117 @@ public class ActionsBuilder {
         return startDate.compareTo(createdDate) <= 0 && endDate.compareTo(createdDate) > 0;
     }
 
-    private boolean commentIsAfter(final Comment comment, final Action action) {
+    private boolean commentIsAfter(final Comment comment, final Step step) {
         /* return true if comment is made after the action. Or if it's the same instant as the action, because some
          * automated tools are that fast (or because of a comment made at the same time you do an edit.
          */
         final DateTime commentDate = comment.created;
-        final DateTime actionDate = action.getTimestamp();
+        final DateTime actionDate = step.timestamp;
         return commentDate.isAfter(actionDate) || commentDate.isEqual(actionDate);
     }
 
-    private boolean commentIsRightAfter(final Comment comment, final int actionIndex) {
-        final Action action = actions.get(actionIndex);
+    private boolean commentIsRightAfter(final Comment comment, final List<Step> steps, final int actionIndex) {
+        final Step step = steps.get(actionIndex);
         final int nextIndex = actionIndex + 1;
-        final Action nextAction = actions.size() > nextIndex ? actions.get(nextIndex) : null;
-        return commentIsAfter(comment, action) &&
-                ( nextAction == null || !commentIsAfter(comment, nextAction) );
+        final Step nextStep = steps.size() > nextIndex ? steps.get(nextIndex) : null;
+        return commentIsAfter(comment, step) &&
+                ( nextStep == null || !commentIsAfter(comment, nextStep) );
+    }
+
+    /**
+     * Where every action goes, laid out from timestamps alone, so we know which actions are worth building before
+     * building any of them.
+     */
+    private class Timeline {
+        private final List<Step> steps;
+        private final List<Step> updates; // The create action, then each update in the order they build on each other
+        private final List<Step> comments; // In the order they were placed, so each comes after the one it builds on
+
+        private Timeline(final Action createAction) {
+            final int size = issue.changelog.histories.length + issue.fields.comment.comments.length + 1;
+            this.steps = new ArrayList<>(size);
+            this.updates = new ArrayList<>(issue.changelog.histories.length + 1);
+            this.comments = new ArrayList<>(issue.fields.comment.comments.length);
+
+            final Step createStep = new Step(createAction.getTimestamp(), null, null, null);
+            createStep.action = createAction;
+            steps.add(createStep);
+            updates.add(createStep);
+        }
+
+        private void markNeeded() {
+            for (final Step step : steps) {
+                step.needed = !isFolded(step);
+            }
+            steps.get(steps.size() - 1).needed = true;
+            // A comment starts from whatever came right before it, which may itself be a comment
+            for (int i = comments.size() - 1; i >= 0; i--) {
+                final Step comment = comments.get(i);
+                if (comment.needed) {
+                    comment.prev.needed = true;
+                }
+            }
+        }
+
+        private List<Action> build() {
+            // Every update carries its state to the next one, so none of them can be skipped, but the ones before the
+            // window are never written. Those are folded into one running state, and only made into an Action where
+            // something builds on it: a comment we keep, the last step, or the first update in the window.
+            ModifiableAction state = null;
+            for (int i = 1; i < updates.size(); i++) {
+                final Step update = updates.get(i);
+                if (!isFolded(update)) {
+                    update.action = actionFactory.update(update.prev.action, update.history);
+                    continue;
+                }
+
+                if (state == null) {
+                    state = ModifiableAction.create().from(update.prev.action);
+                }
+                actionFactory.fold(state, update.history);
+                final boolean lastFolded = i + 1 == updates.size() || !isFolded(updates.get(i + 1));
+                if (update.needed || lastFolded) {
+                    update.action = state.toImmutable();
+                }
+            }
+            for (final Step comment : comments) {
+                if (comment.needed) {
+                    comment.action = actionFactory.comment(comment.prev.action, comment.comment);
+                }
+            }
+
+            final Step last = steps.get(steps.size() - 1);
+            final List<Action> actions = new ArrayList<>(foldBefore == null ? steps.size() : 16);
+            for (final Step step : steps) {
+                if (!isFolded(step) || step == last) {
+                    actions.add(step.action);
+                }
+            }
+            return actions;
+        }
+
+        private boolean isFolded(final Step step) {
+            return foldBefore != null && step.timestamp.isBefore(foldBefore);
+        }
+    }
+
+    private static class Step {
+        private final DateTime timestamp;
+        @Nullable
+        private final Step prev; // The action this one builds on
+        @Nullable
+        private final History history;
+        @Nullable
+        private final Comment comment;
+        private Action action;
+        private boolean needed;
+
+        private Step(final DateTime timestamp, @Nullable final Step prev, @Nullable final History history,
+                     @Nullable final Comment comment) {
+            this.timestamp = timestamp;
+            this.prev = prev;
+            this.history = history;
+            this.comment = comment;
+        }
     }
 }
@@ -0,0 +1,124 @@
+package com.indeed.jiraactions;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Stopwatch;
+import com.indeed.jiraactions.api.ChangeLogApiCaller;
+import com.indeed.jiraactions.api.IssueAPIParser;
+import com.indeed.jiraactions.api.response.issue.Issue;
+import com.indeed.jiraactions.archive.ArchiveEntry;
+import com.indeed.jiraactions.archive.PageArchiveReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a crawl an {@link ApiPageProvider} archived, page by page and pass by pass, without asking JIRA for
+ * anything. If the {@link Paginator} wants more passes than the crawl had, the archive is replayed from the start,
+ * just as a JIRA where nothing changed would be.
+ */
+public class ArchivePageProvider extends AbstractPageProvider {
+    private static final Logger log = LoggerFactory.getLogger(ArchivePageProvider.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final PageArchiveReader archive;
+    private final List<List<ArchivedPage>> passes;
+    private int pass = 0;
+    private int page = 0;
+
+    public ArchivePageProvider(final PageArchiveReader archive, final ActionFactory actionFactory,
+                               final JiraActionsIndexBuilderConfig config, final TsvFileWriter tsvFileWriter) {
+        super(actionFactory, config, tsvFileWriter);
+        this.archive = archive;
+        this.passes = groupPages(archive.getEntries());
+        log.info("Replaying {} pages in {} passes.", passes.stream().mapToInt(List::size).sum(), passes.size());
+    }
+
+    /**
+     * Changelog pages follow the search page whose issues they belong to.
+     */
+    private static List<List<ArchivedPage>> groupPages(final List<ArchiveEntry> entries) {
+        final TreeMap<Integer, List<ArchivedPage>> passes = new TreeMap<>();
+        ArchivedPage current = null;
+        for (final ArchiveEntry entry : entries) {
+            if (entry.getKind() == ArchiveEntry.Kind.SEARCH) {
+                current = new ArchivedPage(entry);
+                passes.computeIfAbsent(entry.getPass(), pass -> new ArrayList<>()).add(current);
+            } else if (current != null) {
+                current.changeLogs.add(entry);
+            } else {
+                log.warn("Ignoring changelog for {} archived before any page of issues.", entry.getKey());
+            }
+        }
+        return new ArrayList<>(passes.values());
+    }
+
+    @Override
+    public boolean hasPage() {
+        return pass < passes.size() && page < passes.get(pass).size();
+    }
+
+    @Override
+    public JsonNode getRawPage() {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final ArchivedPage archivedPage = passes.get(pass).get(page++);
+        final JsonNode issuesNode;
+        try {
+            issuesNode = objectMapper.readTree(archive.read(archivedPage.search)).get("issues");
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to read an archived page of issues", e);
+        }
+        stopwatch.stop();
+
+        apiTime += stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        return issuesNode;
+    }
+
+    @Override
+    public Iterable<Issue> getPage() {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final ArchivedPage archivedPage = passes.get(pass).get(page++);
+        final List<Issue> issues;
+        try {
+            issues = IssueAPIParser.parseSearchResult(new ByteArrayInputStream(archive.read(archivedPage.search)), customFieldIds)
+                    .getIssues();
+
+            final Map<String, List<byte[]>> changeLogs = new HashMap<>();
+            for (final ArchiveEntry entry : archivedPage.changeLogs) {
+                changeLogs.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(archive.read(entry));
+            }
+            ChangeLogApiCaller.completeFromArchive(issues, changeLogs);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to read an archived page of issues", e);
+        }
+        actionFactory.prefetchUsers(issues);
+        stopwatch.stop();
+
+        apiTime += stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        return issues;
+    }
+
+    @Override
+    public void reset() {
+        pass = pass + 1 < passes.size() ? pass + 1 : 0;
+        page = 0;
+    }
+
+    private static class ArchivedPage {
+        private final ArchiveEntry search;
+        private final List<ArchiveEntry> changeLogs = new ArrayList<>();
+
+        private ArchivedPage(final ArchiveEntry search) {
+            this.search = search;
+        }
+    }
+}
@@ -53,7 +53,7 @@ public class CustomFieldOutputter {
 
                 } else {
                     final DateTime dateTime = JiraActionsUtil.parseDateTime(value);
-                    final long date = Long.parseLong(dateTime.toString("yyyyMMdd"));
+                    final long date = JiraActionsUtil.toDateLong(dateTime);
                     final String datetime = dateTime.toString("yyyy-MM-dd HH:mm:ss");
                     final long timestamp = dateTime.getMillis();
 
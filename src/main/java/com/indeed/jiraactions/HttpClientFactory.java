@@ -0,0 +1,46 @@
+package com.indeed.jiraactions;
+
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * Builds the one HTTP client shared by every JIRA and iupload request, so connections (and their TLS sessions)
+ * are kept alive and reused instead of being set up again for each call.
+ */
+public class HttpClientFactory {
+    private static final int DEFAULT_MAX_CONNECTIONS = 20;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+
+    private HttpClientFactory() { }
+
+    public static CloseableHttpClient create(final JiraActionsIndexBuilderConfig config) {
+        final int maxConnections = config.getHttpMaxConnections() > 0
+                ? config.getHttpMaxConnections() : DEFAULT_MAX_CONNECTIONS;
+        final int maxConnectionsPerRoute = config.getHttpMaxConnectionsPerRoute() > 0
+                ? config.getHttpMaxConnectionsPerRoute() : DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+        // Like HttpsURLConnection, honor the JVM's truststore and keystore properties. The builder's
+        // useSystemProperties() doesn't reach a connection manager we build ourselves.
+        final Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", SSLConnectionSocketFactory.getSystemSocketFactory())
+                .build();
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactories);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(Math.min(maxConnectionsPerRoute, maxConnections));
+
+        // ApiCaller pins itself to a JIRA node with its own JSESSIONID/upstream cookies, so the client must not
+        // keep a cookie store of its own.
+        return HttpClients.custom()
+                .useSystemProperties() // Proxy settings, like HttpsURLConnection
+                .setConnectionManager(connectionManager)
+                .disableCookieManagement()
+                .build();
+    }
+}
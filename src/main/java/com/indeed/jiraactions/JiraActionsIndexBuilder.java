@@ -5,16 +5,23 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.indeed.jiraactions.api.ApiCaller;
 import com.indeed.jiraactions.api.ApiUserLookupService;
+import com.indeed.jiraactions.api.ChangeLogApiCaller;
 import com.indeed.jiraactions.api.IssuesAPICaller;
 import com.indeed.jiraactions.api.customfields.CustomFieldApiParser;
 import com.indeed.jiraactions.api.customfields.CustomFieldDefinition;
 import com.indeed.jiraactions.api.links.LinkTypesApiCaller;
 import com.indeed.jiraactions.api.statustimes.StatusTypesApiCaller;
+import com.indeed.jiraactions.archive.PageArchiveReader;
+import com.indeed.jiraactions.archive.PageArchiveWriter;
 import com.indeed.jiraactions.jiraissues.JiraIssuesIndexBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.joda.time.DateTime;
 
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -25,6 +32,9 @@ import java.util.stream.Collectors;
 public class JiraActionsIndexBuilder {
     private static final Logger log = LoggerFactory.getLogger(JiraActionsIndexBuilder.class);
 
+    private static final String ACTIONS_ARCHIVE = "jiraactions";
+    private static final String ISSUES_ARCHIVE = "jiraissues";
+
     private final JiraActionsIndexBuilderConfig config;
 
     public JiraActionsIndexBuilder(final JiraActionsIndexBuilderConfig config) {
@@ -32,124 +42,211 @@ public class JiraActionsIndexBuilder {
     }
 
     public void run() throws Exception {
-        try {
+        try (final CloseableHttpClient httpClient = HttpClientFactory.create(config)) {
             final Stopwatch stopwatch = Stopwatch.createStarted();
 
-            final ApiCaller apiCaller = new ApiCaller(config);
+            final ApiCaller apiCaller = new ApiCaller(config, httpClient);
 
             final ApiUserLookupService userLookupService = new ApiUserLookupService(config, apiCaller);
             final CustomFieldApiParser customFieldApiParser = new CustomFieldApiParser(userLookupService);
             final ActionFactory actionFactory = new ActionFactory(userLookupService, customFieldApiParser, config);
+            final ChangeLogApiCaller changeLogApiCaller = new ChangeLogApiCaller(config, apiCaller);
+            final List<IssuesAPICaller> issuesAPICallers = new ArrayList<>(2);
 
-            final boolean buildJiraIssuesApi;
-            final Stopwatch downloadStopwatch = Stopwatch.createStarted();
-            if(config.buildSnapshotIndex() ) {
-                final JiraIssuesIndexBuilder jiraIssuesIndexBuilder = new JiraIssuesIndexBuilder(config, new ArrayList<>(), new ArrayList<>());
-                buildJiraIssuesApi = jiraIssuesIndexBuilder.downloadTsv() == null;
-            } else {
-                buildJiraIssuesApi = false;
-            }
-            downloadStopwatch.stop();
+            try {
+                final boolean buildJiraIssuesApi;
+                final Stopwatch downloadStopwatch = Stopwatch.createStarted();
+                if(config.buildSnapshotIndex() ) {
+                    final JiraIssuesIndexBuilder jiraIssuesIndexBuilder = new JiraIssuesIndexBuilder(config, httpClient, new ArrayList<>(), new ArrayList<>());
+                    buildJiraIssuesApi = jiraIssuesIndexBuilder.downloadTsv() == null;
+                } else {
+                    buildJiraIssuesApi = false;
+                }
+                downloadStopwatch.stop();
 
-            final IssuesAPICaller issuesAPICaller = new IssuesAPICaller(config, apiCaller, false);
-            initializeIssuesApiCaller(issuesAPICaller);
+                final PageArchiveReader replay = openReplay(ACTIONS_ARCHIVE);
+                final IssuesAPICaller issuesAPICaller;
+                if (replay == null) {
+                    issuesAPICaller = new IssuesAPICaller(config, apiCaller, false);
+                    issuesAPICallers.add(issuesAPICaller);
+                    initializeIssuesApiCaller(issuesAPICaller);
 
-            if (!issuesAPICaller.currentPageExist()) {
-                log.warn("No issues found for this time range.");
-                return;
-            }
+                    if (!issuesAPICaller.currentPageExist()) {
+                        log.warn("No issues found for this time range.");
+                        return;
+                    }
+                } else {
+                    issuesAPICaller = null;
+                    if (replay.getEntries().isEmpty()) {
+                        log.warn("No issues found in the archive.");
+                        return;
+                    }
+                }
+                final PageArchiveWriter archive = openArchive(ACTIONS_ARCHIVE);
 
-            long fileTime = 0;
+                long fileTime = 0;
 
-            final DateTime startDate = JiraActionsUtil.parseDateTime(config.getStartDate());
-            final DateTime endDate = JiraActionsUtil.parseDateTime(config.getEndDate());
+                final DateTime startDate = JiraActionsUtil.parseDateTime(config.getStartDate());
+                final DateTime endDate = JiraActionsUtil.parseDateTime(config.getEndDate());
 
-            if (!startDate.isBefore(endDate)) {
-                log.error("Invalid start date '{}' not before end date '{}'", startDate, endDate);
-            }
+                if (!startDate.isBefore(endDate)) {
+                    log.error("Invalid start date '{}' not before end date '{}'", startDate, endDate);
+                }
 
-            final LinkTypesApiCaller linkTypesApiCaller = new LinkTypesApiCaller(config, apiCaller);
-            final List<String> linkTypes = linkTypesApiCaller.getLinkTypes();
-            final StatusTypesApiCaller statusTypesApiCaller = new StatusTypesApiCaller(config, apiCaller);
-            final List<String> statusTypes = statusTypesApiCaller.getStatusTypes();
-
-            final OutputFormatter outputFormatter = new OutputFormatter(config);
-            final CustomFieldOutputter customFieldOutputter = new CustomFieldOutputter(outputFormatter);
-
-            final TsvFileWriter writer = new TsvFileWriter(config, linkTypes, statusTypes, buildJiraIssuesApi,
-                    outputFormatter, customFieldOutputter);
-            final Stopwatch headerStopwatch = Stopwatch.createStarted();
-            writer.createFileAndWriteHeaders();
-            headerStopwatch.stop();
-            fileTime += headerStopwatch.elapsed(TimeUnit.MILLISECONDS);
-
-            final ApiPageProvider apiPageProvider = new ApiPageProvider(issuesAPICaller, actionFactory, config, writer);
-            final Paginator paginator = buildJiraIssuesApi
-                    ? new Paginator(apiPageProvider, startDate, endDate, false, false, config.getSnapshotLookbackMonths()) // We want to only build the jiraactions TSV first when building jiraissuesApi
-                    : new Paginator(apiPageProvider, startDate, endDate, config.buildSnapshotIndex(), false, config.getSnapshotLookbackMonths());
-
-            paginator.process();
-            fileTime += apiPageProvider.getFileWritingTime();
-            final long apiTime = apiPageProvider.getApiTime();
-            final long processTime = apiPageProvider.getProcessingTime();
-
-            log.debug("Had to look up {} users.", userLookupService.numLookups());
-
-            final Set<CustomFieldDefinition> missedFieldDefinitions =
-                    Sets.difference(
-                            ImmutableSet.copyOf(config.getCustomFields()),
-                            apiPageProvider.getCustomFieldsSeen()
-                    );
-            final List<String> missedFields = missedFieldDefinitions.stream()
-                    .map(CustomFieldDefinition::getName)
-                    .collect(Collectors.toList());
-
-            log.debug("No values seen for these custom fields: " + missedFields);
-
-            final Stopwatch fileUploadStopwatch = Stopwatch.createStarted();
-            writer.uploadTsvFile(false);
-            fileUploadStopwatch.stop();
-            log.debug("{} ms to create and upload TSV.", fileUploadStopwatch.elapsed(TimeUnit.MILLISECONDS));
-
-            final Stopwatch jiraIssuesStopwatch = Stopwatch.createStarted();
-            if (!buildJiraIssuesApi) {
-                if (config.buildSnapshotIndex()) {
-                    final JiraIssuesIndexBuilder jiraIssuesIndexBuilder = new JiraIssuesIndexBuilder(config, writer.getFields(), writer.getIssues());
-                    log.info("Building jiraissues with {} new/updated issues.", writer.getIssues().size());
-                    jiraIssuesIndexBuilder.run();
+                final List<String> linkTypes;
+                final List<String> statusTypes;
+                if (replay == null) {
+                    final LinkTypesApiCaller linkTypesApiCaller = new LinkTypesApiCaller(config, apiCaller);
+                    linkTypes = linkTypesApiCaller.getLinkTypes();
+                    final StatusTypesApiCaller statusTypesApiCaller = new StatusTypesApiCaller(config, apiCaller);
+                    statusTypes = statusTypesApiCaller.getStatusTypes();
+                    if (archive != null) {
+                        archive.writeLinkTypes(linkTypes);
+                        archive.writeStatusTypes(statusTypes);
+                    }
                 } else {
-                    log.info("Not building jiraissues.");
+                    linkTypes = replay.readLinkTypes();
+                    statusTypes = replay.readStatusTypes();
                 }
-            } else {    // This is how the jiraissuesAPI tsv mainly gets built
-                final IssuesAPICaller issuesAPICallerJiraIssues = new IssuesAPICaller(config, apiCaller, true);
-                initializeIssuesApiCaller(issuesAPICallerJiraIssues);
 
-                final ApiPageProvider apiPageProviderJiraIssues = new ApiPageProvider(issuesAPICallerJiraIssues, actionFactory, config, writer);
-                final Paginator paginatorJiraIssues = new Paginator(apiPageProviderJiraIssues, startDate, endDate, config.buildSnapshotIndex(), true, config.getSnapshotLookbackMonths());
+                final OutputFormatter outputFormatter = new OutputFormatter(config);
+                final CustomFieldOutputter customFieldOutputter = new CustomFieldOutputter(outputFormatter);
 
-                paginatorJiraIssues.process();
+                final TsvFileWriter writer = new TsvFileWriter(config, httpClient, linkTypes, statusTypes, buildJiraIssuesApi,
+                        outputFormatter, customFieldOutputter);
+                final Stopwatch headerStopwatch = Stopwatch.createStarted();
+                writer.createFileAndWriteHeaders();
+                headerStopwatch.stop();
+                fileTime += headerStopwatch.elapsed(TimeUnit.MILLISECONDS);
 
-                writer.uploadTsvFile(true);
-            }
-            jiraIssuesStopwatch.stop();
+                final AbstractPageProvider apiPageProvider = replay == null
+                        ? new ApiPageProvider(issuesAPICaller, changeLogApiCaller, actionFactory, config, writer, archive)
+                        : new ArchivePageProvider(replay, actionFactory, config, writer);
+                final Paginator paginator = buildJiraIssuesApi
+                        ? new Paginator(apiPageProvider, startDate, endDate, false, false, config.getSnapshotLookbackMonths(), config.getBuildThreads(), config.getPipelineDepth()) // We want to only build the jiraactions TSV first when building jiraissuesApi
+                        : new Paginator(apiPageProvider, startDate, endDate, config.buildSnapshotIndex(), false, config.getSnapshotLookbackMonths(), config.getBuildThreads(), config.getPipelineDepth());
+
+                paginator.process();
+                close(archive, replay);
+                if (issuesAPICaller != null) {
+                    issuesAPICaller.endPass(); // The last pass stops without resetting
+                    log.info("Jiraactions batch sizes for the whole run: {}", issuesAPICaller.getBatchSizeMetrics());
+                }
+                fileTime += apiPageProvider.getFileWritingTime();
+                final long apiTime = apiPageProvider.getApiTime();
+                final long processTime = apiPageProvider.getProcessingTime();
+
+                log.debug("Had to look up {} users.", userLookupService.numLookups());
+                log.debug("Fetched full changelogs for {} issues.", changeLogApiCaller.getIssuesCompleted());
+
+                final Set<CustomFieldDefinition> missedFieldDefinitions =
+                        Sets.difference(
+                                ImmutableSet.copyOf(config.getCustomFields()),
+                                apiPageProvider.getCustomFieldsSeen()
+                        );
+                final List<String> missedFields = missedFieldDefinitions.stream()
+                        .map(CustomFieldDefinition::getName)
+                        .collect(Collectors.toList());
+
+                log.debug("No values seen for these custom fields: " + missedFields);
+
+                final Stopwatch fileUploadStopwatch = Stopwatch.createStarted();
+                writer.uploadTsvFile(false);
+                fileUploadStopwatch.stop();
+                log.debug("{} ms to create and upload TSV.", fileUploadStopwatch.elapsed(TimeUnit.MILLISECONDS));
 
-            stopwatch.stop();
+                final Stopwatch jiraIssuesStopwatch = Stopwatch.createStarted();
+                if (!buildJiraIssuesApi) {
+                    if (config.buildSnapshotIndex()) {
+                        final JiraIssuesIndexBuilder jiraIssuesIndexBuilder = new JiraIssuesIndexBuilder(config, httpClient, writer.getFields(), writer.getIssues());
+                        log.info("Building jiraissues with {} new/updated issues.", writer.getIssues().size());
+                        jiraIssuesIndexBuilder.run();
+                    } else {
+                        log.info("Not building jiraissues.");
+                    }
+                } else {    // This is how the jiraissuesAPI tsv mainly gets built
+                    final PageArchiveReader replayJiraIssues = openReplay(ISSUES_ARCHIVE);
+                    final PageArchiveWriter archiveJiraIssues = openArchive(ISSUES_ARCHIVE);
+                    final IssuesAPICaller issuesAPICallerJiraIssues;
+                    final AbstractPageProvider apiPageProviderJiraIssues;
+                    if (replayJiraIssues == null) {
+                        issuesAPICallerJiraIssues = new IssuesAPICaller(config, apiCaller, true);
+                        issuesAPICallers.add(issuesAPICallerJiraIssues);
+                        initializeIssuesApiCaller(issuesAPICallerJiraIssues);
+                        apiPageProviderJiraIssues = new ApiPageProvider(issuesAPICallerJiraIssues, changeLogApiCaller, actionFactory, config, writer, archiveJiraIssues);
+                    } else {
+                        issuesAPICallerJiraIssues = null;
+                        apiPageProviderJiraIssues = new ArchivePageProvider(replayJiraIssues, actionFactory, config, writer);
+                    }
+                    final Paginator paginatorJiraIssues = new Paginator(apiPageProviderJiraIssues, startDate, endDate, config.buildSnapshotIndex(), true, config.getSnapshotLookbackMonths(), config.getBuildThreads(), config.getPipelineDepth());
 
-            final long apiUserTime = userLookupService.getUserLookupTotalTime();
+                    if (apiPageProviderJiraIssues.hasPage()) {
+                        paginatorJiraIssues.process();
+                    }
+                    close(archiveJiraIssues, replayJiraIssues);
+                    if (issuesAPICallerJiraIssues != null) {
+                        issuesAPICallerJiraIssues.endPass();
+                        log.info("Jiraissues batch sizes for the whole run: {}", issuesAPICallerJiraIssues.getBatchSizeMetrics());
+                    }
 
-            log.info("{} ms to build Jiraactions.", stopwatch.elapsed(TimeUnit.MILLISECONDS) - jiraIssuesStopwatch.elapsed(TimeUnit.MILLISECONDS));
-            log.info("Jiraactions:{apiTime: {} ms, processTime: {} ms, fileTime: {} ms, userLookupTime: {} ms}",
-                    apiTime-apiUserTime, processTime, fileTime, apiUserTime);
-            if (config.buildSnapshotIndex()) {
-                log.info("{} ms to build Jiraissues.", jiraIssuesStopwatch.elapsed(TimeUnit.MILLISECONDS));
+                    writer.uploadTsvFile(true);
+                }
+                jiraIssuesStopwatch.stop();
+
+                userLookupService.saveUserCache();
+
+                stopwatch.stop();
+
+                final long apiUserTime = userLookupService.getUserLookupTotalTime();
+
+                log.info("{} ms to build Jiraactions.", stopwatch.elapsed(TimeUnit.MILLISECONDS) - jiraIssuesStopwatch.elapsed(TimeUnit.MILLISECONDS));
+                log.info("Jiraactions:{apiTime: {} ms, processTime: {} ms, fileTime: {} ms, userLookupTime: {} ms}",
+                        apiTime-apiUserTime, processTime, fileTime, apiUserTime);
+                if (config.buildSnapshotIndex()) {
+                    log.info("{} ms to build Jiraissues.", jiraIssuesStopwatch.elapsed(TimeUnit.MILLISECONDS));
+                }
+                log.info("{} ms for the whole process.", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            } finally {
+                issuesAPICallers.forEach(IssuesAPICaller::close);
+                changeLogApiCaller.close();
+                userLookupService.close();
             }
-            log.info("{} ms for the whole process.", stopwatch.elapsed(TimeUnit.MILLISECONDS));
         } catch (final Exception e) {
             log.error("Threw an exception trying to run the index builder", e);
             throw e;
         }
     }
 
+    /**
+     * @return the archive to replay {@code name} from, or null if we're not replaying
+     */
+    @Nullable
+    private PageArchiveReader openReplay(final String name) throws IOException {
+        if (!config.getArchiveReplay()) {
+            return null;
+        }
+        return new PageArchiveReader(new File(config.getArchiveDir(), name));
+    }
+
+    /**
+     * @return the archive to save {@code name}'s pages to, or null if we're not archiving
+     */
+    @Nullable
+    private PageArchiveWriter openArchive(final String name) throws IOException {
+        if (config.getArchiveDir() == null || config.getArchiveReplay()) {
+            return null;
+        }
+        return new PageArchiveWriter(new File(config.getArchiveDir(), name));
+    }
+
+    private static void close(@Nullable final Closeable... archives) throws IOException {
+        for (final Closeable archive : archives) {
+            if (archive != null) {
+                archive.close();
+            }
+        }
+    }
+
     private void initializeIssuesApiCaller(final IssuesAPICaller issuesAPICaller) throws IOException {
         final long start = System.currentTimeMillis();
         final int total = issuesAPICaller.setNumTotal();
@@ -89,6 +89,25 @@ public class JiraActionsIndexBuilderCommandLine {
             final String[] jiraFieldArray = config.getStringArray("jira.fields");
             final String jiraFields = COMMA_JOINER.join(jiraFieldArray);
             final String jiraExpand = config.getString("jira.expand");
+            final int jiraPrefetchDepth = config.getInt("jira.prefetch.depth", 1);
+            final long jiraBatchTargetLatencyMillis = config.getLong("jira.batch.targetlatencyms", 0);
+            final int jiraBatchMax = config.getInt("jira.batch.max", 0);
+            final long jiraBatchTargetBytes = config.getLong("jira.batch.targetbytes", 0);
+            final int jiraPartitionTargetSize = config.getInt("jira.partition.targetsize", 0);
+            final boolean jiraKeysetPagination = config.getBoolean("jira.pagination.keyset", false);
+            final int jiraChangeLogThreads = config.getInt("jira.changelog.threads", 4);
+            final int jiraUserLookupThreads = config.getInt("jira.userlookup.threads", 8);
+            final String userCacheFile = config.getString("usercache.file", null);
+            final long userCacheTtlHours = config.getLong("usercache.ttlhours", 168);
+            final String archiveDir = config.getString("archive.dir", null);
+            final boolean archiveReplay = config.getBoolean("archive.replay", false);
+            final boolean jiraStreamingDecode = config.getBoolean("jira.decode.streaming", true);
+            final double jiraRateLimit = config.getDouble("jira.ratelimit", 0);
+            final int buildThreads = config.getInt("build.threads", 1);
+            final int pipelineDepth = config.getInt("pipeline.depth", 0);
+            final boolean buildFoldPreWindow = config.getBoolean("build.foldprewindow", false);
+            final int httpMaxConnections = config.getInt("http.maxconnections", 20);
+            final int httpMaxConnectionsPerRoute = config.getInt("http.maxconnectionsperroute", 10);
             final String[] jiraProjectArray = config.getStringArray("jira.project");
             final String jiraProject = COMMA_JOINER.join(jiraProjectArray);
             final String[] excludedJiraProjectArray = config.getStringArray("jira.projectexcluded");
@@ -115,6 +134,8 @@ public class JiraActionsIndexBuilderCommandLine {
             final OptionalInt maxStringTermLength = Optional.ofNullable(config.getInteger("index.maxStringTermLength", null))
                     .map(OptionalInt::of).orElse(OptionalInt.empty());
             final boolean retainTsv = config.getBoolean("retain.tsv", false);
+            final boolean gzipTsv = config.getBoolean("tsv.gzip", false);
+            final int uploadThreads = config.getInt("upload.threads", 1);
 
             final JiraActionsIndexBuilderConfig indexBuilderConfig = ImmutableJiraActionsIndexBuilderConfig.builder()
                     .jiraUsername(jiraUsername)
@@ -130,6 +151,25 @@ public class JiraActionsIndexBuilderCommandLine {
                     .startDate(startDate)
                     .endDate(endDate)
                     .jiraBatchSize(jiraBatchSize)
+                    .jiraPrefetchDepth(jiraPrefetchDepth)
+                    .jiraBatchTargetLatencyMillis(jiraBatchTargetLatencyMillis)
+                    .jiraBatchMax(jiraBatchMax)
+                    .jiraBatchTargetBytes(jiraBatchTargetBytes)
+                    .jiraPartitionTargetSize(jiraPartitionTargetSize)
+                    .jiraKeysetPagination(jiraKeysetPagination)
+                    .jiraChangeLogThreads(jiraChangeLogThreads)
+                    .jiraUserLookupThreads(jiraUserLookupThreads)
+                    .userCacheFile(userCacheFile)
+                    .userCacheTtlHours(userCacheTtlHours)
+                    .archiveDir(archiveDir)
+                    .archiveReplay(archiveReplay)
+                    .jiraStreamingDecode(jiraStreamingDecode)
+                    .jiraRateLimit(jiraRateLimit)
+                    .buildThreads(buildThreads)
+                    .pipelineDepth(pipelineDepth)
+                    .buildFoldPreWindow(buildFoldPreWindow)
+                    .httpMaxConnections(httpMaxConnections)
+                    .httpMaxConnectionsPerRoute(httpMaxConnectionsPerRoute)
                     .indexName(indexName)
                     .buildSnapshotIndex(buildSnapshotIndex)
                     .snapshotLookbackMonths(jiraIssuesLookbackMonths)
@@ -142,6 +182,8 @@ public class JiraActionsIndexBuilderCommandLine {
                     .customFields(customFieldDefinitions)
                     .maxStringTermLength(maxStringTermLength)
                     .retainTSV(retainTsv)
+                    .gzipTSV(gzipTsv)
+                    .uploadThreads(uploadThreads)
                     .build();
             indexBuilder = new JiraActionsIndexBuilder(indexBuilderConfig);
 
@@ -5,6 +5,7 @@ import org.immutables.value.Value;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.OptionalInt;
 import java.util.Set;
 
@@ -23,6 +24,25 @@ public interface JiraActionsIndexBuilderConfig {
     String getStartDate();
     String getEndDate();
     @Nonnegative int getJiraBatchSize();
+    @Nonnegative int getJiraPrefetchDepth();
+    @Nonnegative long getJiraBatchTargetLatencyMillis();
+    @Nonnegative int getJiraBatchMax();
+    @Nonnegative long getJiraBatchTargetBytes();
+    @Nonnegative int getJiraPartitionTargetSize();
+    boolean getJiraKeysetPagination();
+    @Nonnegative int getJiraChangeLogThreads();
+    @Nonnegative int getJiraUserLookupThreads();
+    @Nullable String getUserCacheFile();
+    @Nonnegative long getUserCacheTtlHours();
+    @Nullable String getArchiveDir();
+    boolean getArchiveReplay();
+    boolean getJiraStreamingDecode();
+    @Nonnegative double getJiraRateLimit();
+    @Nonnegative int getBuildThreads();
+    @Nonnegative int getPipelineDepth();
+    boolean getBuildFoldPreWindow();
+    @Nonnegative int getHttpMaxConnections();
+    @Nonnegative int getHttpMaxConnectionsPerRoute();
     String getIndexName();
     boolean buildSnapshotIndex();
     @Nonnegative int getSnapshotLookbackMonths();
@@ -35,6 +55,8 @@ public interface JiraActionsIndexBuilderConfig {
     CustomFieldDefinition[] getCustomFields();
     OptionalInt getMaxStringTermLength();
     boolean getRetainTSV();
+    boolean getGzipTSV();
+    @Nonnegative int getUploadThreads();
 
     @Value.Check
     default void check() {
@@ -42,6 +64,14 @@ public interface JiraActionsIndexBuilderConfig {
             throw new IllegalArgumentException("Jira Batch Size must be greater than 0.");
         }
 
+        if (getJiraKeysetPagination() && !Arrays.asList(getJiraFields().split(",")).contains("updated")) {
+            throw new IllegalArgumentException("Keyset pagination needs the updated field in jira.fields.");
+        }
+
+        if (getArchiveReplay() && getArchiveDir() == null) {
+            throw new IllegalArgumentException("Replaying an archive needs archive.dir.");
+        }
+
         if (buildSnapshotIndex() && getSnapshotIndexName() == null) {
             throw new IllegalArgumentException("If we are building a snapshot index, we must have a name for it.");
         }
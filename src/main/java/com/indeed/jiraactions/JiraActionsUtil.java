@@ -14,10 +14,21 @@ public abstract class JiraActionsUtil {
 
     public static final DateTimeZone RAMSES_TIME = DateTimeZone.forOffsetHours(-6);
 
+    // What JIRA sends for every timestamp, e.g. 2016-08-04T10:15:43.000-0500
+    private static final int JIRA_TIMESTAMP_LENGTH = "yyyy-MM-ddTHH:mm:ss.SSS+hhmm".length();
+    private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
     // copied from imhotep-builders
     @SuppressWarnings("Duplicates")
     @Nonnull
     public static DateTime parseDateTime(final String arg) {
+        if (arg.length() == JIRA_TIMESTAMP_LENGTH) {
+            final DateTime jiraTimestamp = parseJiraTimestamp(arg);
+            if (jiraTimestamp != null) {
+                return jiraTimestamp;
+            }
+        }
+
         try {
             return new DateTime(arg.trim().replace(" ", "T"), RAMSES_TIME);
         } catch (final IllegalArgumentException ignored) { }
@@ -54,6 +65,110 @@ public abstract class JiraActionsUtil {
         throw new IllegalArgumentException("could not parse date: " + arg);
     }
 
+    /**
+     * Reads JIRA's own timestamp format directly, which is what nearly every date we parse is in.
+     * @return null if it's in some other format
+     */
+    @Nullable
+    private static DateTime parseJiraTimestamp(final String arg) {
+        final char separator = arg.charAt(10);
+        final char sign = arg.charAt(23);
+        if (arg.charAt(4) != '-' || arg.charAt(7) != '-' || (separator != 'T' && separator != ' ')
+                || arg.charAt(13) != ':' || arg.charAt(16) != ':' || arg.charAt(19) != '.'
+                || (sign != '+' && sign != '-')) {
+            return null;
+        }
+
+        final int year = parseDigits(arg, 0, 4);
+        final int month = parseDigits(arg, 5, 2);
+        final int day = parseDigits(arg, 8, 2);
+        final int hour = parseDigits(arg, 11, 2);
+        final int minute = parseDigits(arg, 14, 2);
+        final int second = parseDigits(arg, 17, 2);
+        final int millis = parseDigits(arg, 20, 3);
+        final int offsetHours = parseDigits(arg, 24, 2);
+        final int offsetMinutes = parseDigits(arg, 26, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0
+                || offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59) {
+            return null;
+        }
+
+        final long offsetMillis = (sign == '-' ? -1 : 1) * (offsetHours * 60L + offsetMinutes) * 60_000L;
+        final long localMillis = (((epochDay(year, month, day) * 24 + hour) * 60 + minute) * 60 + second) * 1000 + millis;
+        return new DateTime(localMillis - offsetMillis, RAMSES_TIME);
+    }
+
+    /**
+     * @return the number, or -1 if any of the characters aren't digits
+     */
+    private static int parseDigits(final String s, final int start, final int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            final int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int daysInMonth(final int year, final int month) {
+        final boolean leapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        return month == 2 && leapYear ? 29 : DAYS_IN_MONTH[month - 1];
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar.
+     */
+    private static long epochDay(final int year, final int month, final int day) {
+        // Count years from March so the leap day is the last day of the year
+        final long y = month <= 2 ? year - 1 : year;
+        final long era = (y >= 0 ? y : y - 399) / 400;
+        final long yearOfEra = y - era * 400;
+        final long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * The same as {@code Long.parseLong(date.toString("yyyyMMdd"))}, without the strings.
+     */
+    public static long toDateLong(final DateTime date) {
+        return date.getYear() * 10_000L + date.getMonthOfYear() * 100 + date.getDayOfMonth();
+    }
+
+    /**
+     * The same as {@code Long.parseLong(date.toString("yyyyMMddHHmmss"))}, without the strings.
+     */
+    public static long toDateTimeLong(final DateTime date) {
+        return toDateLong(date) * 1_000_000L + date.getHourOfDay() * 10_000 + date.getMinuteOfHour() * 100
+                + date.getSecondOfMinute();
+    }
+
+    /**
+     * The same as {@code date.toString("yyyy-MM-dd")}.
+     */
+    @Nonnull
+    public static String toDateString(final DateTime date) {
+        final char[] chars = new char[10];
+        writeDigits(chars, 0, 4, date.getYear());
+        chars[4] = '-';
+        writeDigits(chars, 5, 2, date.getMonthOfYear());
+        chars[7] = '-';
+        writeDigits(chars, 8, 2, date.getDayOfMonth());
+        return new String(chars);
+    }
+
+    private static void writeDigits(final char[] chars, final int start, final int length, final int value) {
+        int remaining = value;
+        for (int i = start + length - 1; i >= start; i--) {
+            chars[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+    }
+
     @Nonnull
     public static String getUnixTimestamp(@Nullable final DateTime date) {
         if(date == null) {
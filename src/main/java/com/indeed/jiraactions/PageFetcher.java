@@ -0,0 +1,90 @@
+package com.indeed.jiraactions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The fetch stage of a pipelined {@link Paginator}: pages are read on their own thread, up to a fixed number ahead
+ * of the page being written, so JIRA is never idle while we build and write.
+ */
+class PageFetcher {
+    private static final Logger log = LoggerFactory.getLogger(PageFetcher.class);
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> pages; // Pages, then END or whatever went wrong
+    private final Thread thread;
+    private volatile boolean stopped = false;
+
+    PageFetcher(final Paginator.PageSource source, final int depth) {
+        this.pages = new ArrayBlockingQueue<>(depth);
+        this.thread = new Thread(() -> fetch(source), "fetch-pages");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void fetch(final Paginator.PageSource source) {
+        Object last = END;
+        try {
+            while (!stopped) {
+                final Paginator.FetchedPage page = source.next();
+                if (page == null) {
+                    break;
+                }
+                pages.put(page);
+            }
+        } catch (final Throwable t) {
+            last = t;
+        }
+
+        try {
+            pages.put(last);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the next page, or null once there are no more
+     */
+    @Nullable
+    Paginator.FetchedPage next() throws InterruptedException {
+        final Object next = pages.take();
+        if (next == END) {
+            return null;
+        } else if (next instanceof Paginator.FetchedPage) {
+            return (Paginator.FetchedPage) next;
+        } else if (next instanceof InterruptedException) {
+            throw (InterruptedException) next;
+        } else if (next instanceof RuntimeException) {
+            throw (RuntimeException) next;
+        } else if (next instanceof Error) {
+            throw (Error) next;
+        } else {
+            throw new RuntimeException("Unable to fetch the next page", (Throwable) next);
+        }
+    }
+
+    /**
+     * Stops fetching and throws away any pages fetched ahead. The page provider is ours again once this returns.
+     */
+    void stop() throws InterruptedException {
+        stopped = true;
+        int discarded = 0;
+        while (thread.isAlive() || !pages.isEmpty()) {
+            final Object page = pages.poll(100, TimeUnit.MILLISECONDS);
+            if (page instanceof Paginator.FetchedPage) {
+                ((Paginator.FetchedPage) page).cancel();
+                discarded++;
+            }
+        }
+        thread.join();
+        if (discarded > 0) {
+            log.debug("Discarded {} pages fetched ahead.", discarded);
+        }
+    }
+}
@@ -3,16 +3,23 @@ package com.indeed.jiraactions;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.indeed.jiraactions.api.response.issue.Issue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.joda.time.DateTime;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -25,16 +32,37 @@ public class Paginator {
     private final boolean buildJiraIssues;
     private final boolean buildJiraIssuesApi;
     private final int snapshotLookbackMonths;
+    private final int buildThreads;
+    private final int pipelineDepth;
+    private final StageTimer fetchTimer = new StageTimer("fetch", 1);
+    private final StageTimer buildTimer;
 
     public Paginator(final PageProvider pageProvider, final DateTime startDate, final DateTime endDate,
                      final boolean buildJiraIssues, final boolean buildJiraIssuesApi,
                      final int snapshotLookbackMonths) {
+        this(pageProvider, startDate, endDate, buildJiraIssues, buildJiraIssuesApi, snapshotLookbackMonths, 1, 0);
+    }
+
+    /**
+     * @param buildThreads how many issues of a page to build actions for at once. The actions are still filtered,
+     *                     written and used to decide when to stop in the order of the page.
+     * @param pipelineDepth if more than 0, pages are fetched on one thread and written on another, and up to this
+     *                      many pages can wait between them and the building: fetched pages waiting to be built, and
+     *                      built pages whose rows are waiting to be written.
+     */
+    public Paginator(final PageProvider pageProvider, final DateTime startDate, final DateTime endDate,
+                     final boolean buildJiraIssues, final boolean buildJiraIssuesApi,
+                     final int snapshotLookbackMonths, final int buildThreads, final int pipelineDepth) {
         this.pageProvider = pageProvider;
         this.startDate = startDate;
         this.endDate = endDate;
         this.buildJiraIssues = buildJiraIssues;
         this.buildJiraIssuesApi = buildJiraIssuesApi;
         this.snapshotLookbackMonths = snapshotLookbackMonths;
+        // A pipeline always builds on its own threads, so the paginating thread only has to put things in order
+        this.buildThreads = pipelineDepth > 0 ? Math.max(1, buildThreads) : buildThreads;
+        this.pipelineDepth = pipelineDepth;
+        this.buildTimer = new StageTimer("build", Math.max(1, this.buildThreads));
     }
 
     /*
@@ -62,6 +90,38 @@ public class Paginator {
      * 3) We find something we've already seen at the very beginning of our list. We're done.
      */
     public void process() throws InterruptedException {
+        final long startNanos = System.nanoTime();
+        final ExecutorService buildPool = buildThreads > 1 || pipelineDepth > 0
+                ? Executors.newFixedThreadPool(buildThreads, new ThreadFactoryBuilder()
+                        .setNameFormat("build-actions-%d")
+                        .setDaemon(true)
+                        .build())
+                : null;
+        final WriteStage writeStage = pipelineDepth > 0 ? new WriteStage(pipelineDepth) : null;
+        try {
+            process(buildPool, writeStage);
+            if (writeStage != null) {
+                writeStage.finish();
+            }
+        } finally {
+            if (buildPool != null) {
+                buildPool.shutdownNow();
+            }
+            if (writeStage != null) {
+                writeStage.abort();
+            }
+        }
+
+        if (writeStage != null) {
+            final long wallNanos = System.nanoTime() - startNanos;
+            log.info("Pipeline took {} ms. {}; {}; {}.", TimeUnit.NANOSECONDS.toMillis(wallNanos),
+                    fetchTimer.describe(wallNanos), buildTimer.describe(wallNanos),
+                    writeStage.getTimer().describe(wallNanos));
+        }
+    }
+
+    private void process(@Nullable final ExecutorService buildPool, @Nullable final WriteStage writeStage)
+            throws InterruptedException {
         final Map<String, DateTime> seenIssues = new HashMap<>();
         boolean reFoundTheBeginning = false;
         boolean firstIssue = true;
@@ -71,63 +131,83 @@ public class Paginator {
             firstIssue = true;
             final Set<String> seenThisLoop = new HashSet<>();
 
-            while (pageProvider.hasPage()) {
-                final Stopwatch stopwatch = Stopwatch.createStarted();
-                final List<Issue> issues = Lists.newArrayList(pageProvider.getPage());
-                log.debug(issues.stream().map(x -> x.key).collect(Collectors.joining(", ")));
-                for (final Issue issue : issues) {
-                    try {
-                        final List<Action> preFilteredActions = pageProvider.getActions(issue);
-                        final List<Action> actions = getActionsFilterByLastSeen(seenIssues, issue, preFilteredActions);
-                        final List<Action> filteredActions = actions.stream().filter(a -> a.isInRange(startDate, endDate)).collect(Collectors.toList());
-
-                        if (buildJiraIssues) {
-                            if (buildJiraIssuesApi) { // Jiraissues API
-                                final List<Action> apiActions = actions.stream().filter(a -> a.isInRange(startDate.minusMonths(snapshotLookbackMonths), endDate)).collect(Collectors.toList());  // It doesn't use filteredActions because it filters a different range
-                                if (!apiActions.isEmpty()) {
-                                    final Action action = pageProvider.getJiraissues(apiActions.get(apiActions.size() - 1), issue);
-                                    if (action.getLastUpdated() >= Integer.parseInt(startDate.minusMonths(snapshotLookbackMonths).toString("yyyyMMdd"))) {
-                                        pageProvider.writeIssue(action);
+            final PageSource source = () -> fetchPage(buildPool);
+            final PageFetcher fetcher = pipelineDepth > 0 ? new PageFetcher(source, pipelineDepth) : null;
+            try {
+                FetchedPage page;
+                while ((page = fetcher == null ? source.next() : fetcher.next()) != null) {
+                    final Stopwatch stopwatch = Stopwatch.createStarted();
+                    final List<Issue> issues = page.issues;
+                    for (int i = 0; i < issues.size(); i++) {
+                        final Issue issue = issues.get(i);
+                        try {
+                            final List<Action> preFilteredActions = page.getActions(i);
+                            final List<Action> actions = getActionsFilterByLastSeen(seenIssues, issue, preFilteredActions);
+                            final List<Action> filteredActions = actions.stream().filter(a -> a.isInRange(startDate, endDate)).collect(Collectors.toList());
+
+                            if (buildJiraIssues) {
+                                if (buildJiraIssuesApi) { // Jiraissues API
+                                    final List<Action> apiActions = actions.stream().filter(a -> a.isInRange(startDate.minusMonths(snapshotLookbackMonths), endDate)).collect(Collectors.toList());  // It doesn't use filteredActions because it filters a different range
+                                    if (!apiActions.isEmpty()) {
+                                        final Action action = pageProvider.getJiraissues(apiActions.get(apiActions.size() - 1), issue);
+                                        if (action.getLastUpdated() >= JiraActionsUtil.toDateLong(startDate.minusMonths(snapshotLookbackMonths))) {
+                                            write(writeStage, issue, () -> pageProvider.writeIssue(action));
+                                        }
                                     }
+                                } else {    // Jiraactions & Jiraissues TSV
+                                    final Action action = filteredActions.isEmpty()
+                                            ? null
+                                            : pageProvider.getJiraissues(filteredActions.get(filteredActions.size() - 1), issue);
+                                    write(writeStage, issue, () -> {
+                                        if (action != null) {
+                                            pageProvider.writeIssue(action);
+                                        }
+                                        pageProvider.writeActions(filteredActions);
+                                    });
                                 }
-                            } else {    // Jiraactions & Jiraissues TSV
-                                if (!filteredActions.isEmpty()) {
-                                    final Action action = pageProvider.getJiraissues(filteredActions.get(filteredActions.size() - 1), issue);
-                                    pageProvider.writeIssue(action);
-                                }
-                                pageProvider.writeActions(filteredActions);
+                            } else {    // Jiraactions
+                                write(writeStage, issue, () -> pageProvider.writeActions(filteredActions));
                             }
-                        } else {    // Jiraactions
-                            pageProvider.writeActions(filteredActions);
-                        }
 
 
-                        final boolean ignoreForEndDetection = ignoreUpdatedDate(issue, preFilteredActions);
-                        if (!firstPass // Don't bail out the first time through
-                                && preFilteredActions.size() > 0 // It had issues in our time range; so we can tell if it was filtered
-                                && actions.size() == 0// There is nothing new since the last time we saw it
-                                && !ignoreForEndDetection // Ignore out of order issues
-                                && !seenThisLoop.contains(issue.key) // Ignore if we see it and a few things push it down into our page
-                             ) {
-                            log.debug("Saw no new actions for {}, stopping.", issue.key);
-                            reFoundTheBeginning = true;
-                            break;
-                        }
-                        seenThisLoop.add(issue.key);
-                        if (preFilteredActions.size() > 0 && !ignoreForEndDetection) {
-                            firstIssue = false;
+                            final boolean ignoreForEndDetection = ignoreUpdatedDate(issue, preFilteredActions);
+                            if (!firstPass // Don't bail out the first time through
+                                    && preFilteredActions.size() > 0 // It had issues in our time range; so we can tell if it was filtered
+                                    && actions.size() == 0// There is nothing new since the last time we saw it
+                                    && !ignoreForEndDetection // Ignore out of order issues
+                                    && !seenThisLoop.contains(issue.key) // Ignore if we see it and a few things push it down into our page
+                                 ) {
+                                log.debug("Saw no new actions for {}, stopping.", issue.key);
+                                reFoundTheBeginning = true;
+                                break;
+                            }
+                            seenThisLoop.add(issue.key);
+                            if (preFilteredActions.size() > 0 && !ignoreForEndDetection) {
+                                firstIssue = false;
+                            }
+                        } catch (final InterruptedException e) {
+                            throw e;
+                        } catch (final Exception e) {
+                            log.error("Error parsing actions for issue {}.", issue.key, e);
                         }
-                    } catch (final Exception e) {
-                        log.error("Error parsing actions for issue {}.", issue.key, e);
                     }
-                }
+                    // Anything after where we stopped
+                    page.cancel();
+                    if (writeStage != null) {
+                        writeStage.endPage();
+                    }
 
-                stopwatch.stop();
-                log.trace("{} ms to get actions from a set of issues.", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+                    stopwatch.stop();
+                    log.trace("{} ms to get actions from a set of issues.", stopwatch.elapsed(TimeUnit.MILLISECONDS));
 
-                // Otherwise we'd do another entire pass of the dataset
-                if (reFoundTheBeginning) {
-                    break;
+                    // Otherwise we'd do another entire pass of the dataset
+                    if (reFoundTheBeginning) {
+                        break;
+                    }
+                }
+            } finally {
+                if (fetcher != null) {
+                    fetcher.stop();
                 }
             }
             pageProvider.reset();
@@ -136,6 +216,81 @@ public class Paginator {
         }
     }
 
+    /**
+     * Reads the next page and, if there's a build pool, starts building its actions.
+     * @return null if there are no more pages
+     */
+    @Nullable
+    private FetchedPage fetchPage(@Nullable final ExecutorService buildPool) throws InterruptedException {
+        if (!pageProvider.hasPage()) {
+            return null;
+        }
+
+        final List<Issue> issues;
+        try {
+            issues = fetchTimer.time(() -> Lists.newArrayList(pageProvider.getPage()));
+        } catch (final InterruptedException | RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+        log.debug(issues.stream().map(x -> x.key).collect(Collectors.joining(", ")));
+
+        final List<Future<List<Action>>> builtActions = buildPool == null ? null : issues.stream()
+                .map(issue -> buildPool.submit(() -> buildTimer.time(() -> pageProvider.getActions(issue))))
+                .collect(Collectors.toList());
+        return new FetchedPage(issues, builtActions);
+    }
+
+    private static void write(@Nullable final WriteStage writeStage, final Issue issue, final WriteStage.Write write)
+            throws IOException, InterruptedException {
+        if (writeStage == null) {
+            write.run();
+        } else {
+            writeStage.submit(issue.key, write);
+        }
+    }
+
+    @FunctionalInterface
+    interface PageSource {
+        @Nullable
+        FetchedPage next() throws InterruptedException;
+    }
+
+    /**
+     * A page of issues, with their actions being built if there's a build pool.
+     */
+    class FetchedPage {
+        private final List<Issue> issues;
+        @Nullable
+        private final List<Future<List<Action>>> builtActions;
+
+        private FetchedPage(final List<Issue> issues, @Nullable final List<Future<List<Action>>> builtActions) {
+            this.issues = issues;
+            this.builtActions = builtActions;
+        }
+
+        private List<Action> getActions(final int i) throws Exception {
+            if (builtActions == null) {
+                return pageProvider.getActions(issues.get(i));
+            }
+            try {
+                return builtActions.get(i).get();
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        void cancel() {
+            if (builtActions != null) {
+                builtActions.forEach(future -> future.cancel(true));
+            }
+        }
+    }
+
     /**
      * Jira sorts things by the lastUpdatedDate. That doesn't always correspond to the timestamp of an action. This
      * could happen because there's an update that's not visible (for example, a restricted visibility comment) or
@@ -0,0 +1,38 @@
+package com.indeed.jiraactions;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How long one stage of the {@link Paginator} spends working, so we can tell which stage the others wait on.
+ */
+class StageTimer {
+    private final String name;
+    private final int threads;
+    private final AtomicLong busyNanos = new AtomicLong();
+
+    StageTimer(final String name, final int threads) {
+        this.name = name;
+        this.threads = threads;
+    }
+
+    <T> T time(final Callable<T> work) throws Exception {
+        final long start = System.nanoTime();
+        try {
+            return work.call();
+        } finally {
+            busyNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return e.g. "fetch: 12034 ms busy, 87% of 1 thread"
+     */
+    String describe(final long wallNanos) {
+        final long busy = busyNanos.get();
+        final long utilization = wallNanos <= 0 ? 0 : Math.round(100.0 * busy / ((double) wallNanos * threads));
+        return String.format("%s: %d ms busy, %d%% of %d thread%s", name, TimeUnit.NANOSECONDS.toMillis(busy),
+                utilization, threads, threads == 1 ? "" : "s");
+    }
+}
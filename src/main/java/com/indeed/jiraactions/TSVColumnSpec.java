@@ -2,7 +2,9 @@ package com.indeed.jiraactions;
 
 import org.immutables.value.Value;
 
+import javax.annotation.Nullable;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 @Value.Immutable
 public interface TSVColumnSpec {
@@ -10,4 +12,11 @@ public interface TSVColumnSpec {
     String getHeader();
     @Value.Parameter(order = 2)
     Function<Action, String> getActionExtractor();
+
+    /**
+     * For numeric columns, the same value as {@link #getActionExtractor()} without making a string of it, so rows
+     * can be written straight from the number.
+     */
+    @Nullable
+    ToLongFunction<Action> getLongExtractor();
 }
@@ -11,9 +11,13 @@ import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -21,6 +25,7 @@ import java.util.stream.Collectors;
 public class TSVSpecBuilder {
     private static final Logger log = LoggerFactory.getLogger(TSVSpecBuilder.class);
     private static final Pattern SPACE_PATTERN = Pattern.compile(" ", Pattern.LITERAL);
+    private static final String LINK_DELIMITER = " ";
 
     private final ImmutableList.Builder<TSVColumnSpec> columnSpecs = ImmutableList.builder();
 
@@ -43,9 +48,10 @@ public class TSVSpecBuilder {
     }
 
     public TSVSpecBuilder addUserColumns(final String header, final Function<Action, User> userExtractor) {
-        addColumn(header, action -> userExtractor.apply(action).getDisplayName());
-        addColumn(header + "username", action -> userExtractor.apply(action).getName());
-        addColumn(header + "groups*|", action -> String.join("|", userExtractor.apply(action).getGroups()));
+        final Function<Action, User> user = oncePerAction(userExtractor);
+        addColumn(header, action -> user.apply(action).getDisplayName());
+        addColumn(header + "username", action -> user.apply(action).getName());
+        addColumn(header + "groups*|", action -> String.join("|", user.apply(action).getGroups()));
         return this;
     }
 
@@ -54,16 +60,27 @@ public class TSVSpecBuilder {
         return this;
     }
 
-    public TSVSpecBuilder addLongColumn(final String header, final Function<Action, Long> longExtractor) {
-        addColumn(header, action -> String.valueOf(longExtractor.apply(action)));
+    public TSVSpecBuilder addLongColumn(final String header, final ToLongFunction<Action> longExtractor) {
+        columnSpecs.add(ImmutableTSVColumnSpec.builder()
+                .header(header)
+                .actionExtractor(action -> String.valueOf(longExtractor.applyAsLong(action)))
+                .longExtractor(longExtractor)
+                .build());
         return this;
     }
 
     public TSVSpecBuilder addStatusTimeColumns(final List<String> statusTypes) {
+        final Map<String, Integer> statusIndexes = new HashMap<>(statusTypes.size() * 2);
+        for (int i = 0; i < statusTypes.size(); i++) {
+            statusIndexes.putIfAbsent(statusTypes.get(i), i);
+        }
+        final Function<Action, StatusTime[]> statusTimesByIndex = oncePerAction(action -> indexStatusTimes(statusIndexes, action));
+
         for (final String type : statusTypes) {
-            final Function<Action, Long> totalStatusTime = action -> getTotalStatusTime(type, action.getStatusTimes());
-            final Function<Action, Long> timeToFirst = action -> getTimeToFirst(type, action.getStatusTimes());
-            final Function<Action, Long> timeToLast = action -> getTimeToLast(type, action.getStatusTimes());
+            final int index = statusIndexes.get(type);
+            final ToLongFunction<Action> totalStatusTime = action -> getTotalStatusTime(statusTimesByIndex.apply(action)[index]);
+            final ToLongFunction<Action> timeToFirst = action -> getTimeToFirst(statusTimesByIndex.apply(action)[index]);
+            final ToLongFunction<Action> timeToLast = action -> getTimeToLast(statusTimesByIndex.apply(action)[index]);
             final String formattedType = JiraActionsUtil.formatStringForIqlField(type);
             addLongColumn(String.format("totaltime_%s", formattedType), totalStatusTime);
             addLongColumn(String.format("timetofirst_%s", formattedType), timeToFirst);
@@ -77,7 +94,9 @@ public class TSVSpecBuilder {
 
     public TSVSpecBuilder addCustomFieldColumns(final CustomFieldDefinition customField) {
         final List<String> headers = customField.getHeaders();
-        final Function<Action, List<String>> valueExtractor = action -> getCustomFieldValue(customField, action);
+        final Function<Action, List<String>> valueExtractor = headers.size() == 1
+                ? action -> getCustomFieldValue(customField, action)
+                : oncePerAction(action -> getCustomFieldValue(customField, action));
         for (int i = 0; i < headers.size(); i++) {
             final int index = i; // must be final for the lambda expression
             addColumn(headers.get(index), action -> valueExtractor.apply(action).get(index));
@@ -86,8 +105,9 @@ public class TSVSpecBuilder {
     }
 
     public TSVSpecBuilder addLinkColumns(final List<String> linkTypes) {
+        final Function<Action, Map<String, String>> linksByType = oncePerAction(TSVSpecBuilder::groupLinks);
         for (final String type : linkTypes) {
-            final Function<Action, String> valueExtractor = action -> getLinkValue(type, action);
+            final Function<Action, String> valueExtractor = action -> getLinkValue(type, linksByType.apply(action));
             addColumn(
                     String.format("link_%s*", SPACE_PATTERN.matcher(type).replaceAll(Matcher.quoteReplacement("_"))), valueExtractor);
         }
@@ -98,6 +118,33 @@ public class TSVSpecBuilder {
         return this;
     }
 
+    /**
+     * For a value several columns are sliced from. A row's columns are extracted in turn, so remembering the value
+     * for the last action means it's only worked out once per row.
+     */
+    private static <T> Function<Action, T> oncePerAction(final Function<Action, T> extractor) {
+        final AtomicReference<LastValue<T>> last = new AtomicReference<>();
+        return action -> {
+            final LastValue<T> lastValue = last.get();
+            if (lastValue != null && lastValue.action == action) {
+                return lastValue.value;
+            }
+            final T value = extractor.apply(action);
+            last.set(new LastValue<>(action, value));
+            return value;
+        };
+    }
+
+    private static class LastValue<T> {
+        private final Action action;
+        private final T value;
+
+        private LastValue(final Action action, final T value) {
+            this.action = action;
+            this.value = value;
+        }
+    }
+
     private List<String> getCustomFieldValue(final CustomFieldDefinition customField, final Action action) {
         final CustomFieldValue value = action.getCustomFieldValues().get(customField);
         if (value == null) {
@@ -112,44 +159,61 @@ public class TSVSpecBuilder {
         }
     }
 
-    private String getLinkValue(final String linkType, final Action action) {
-        final String delimeter = " ";
-        final String links = action.getLinks().stream()
-                .filter(x -> x.getDescription().equals(linkType))
-                .map(Link::getTargetKey)
-                .collect(Collectors.joining(delimeter));
+    /**
+     * The target keys of an action's links, joined together for each type of link, in one pass over the links.
+     */
+    private static Map<String, String> groupLinks(final Action action) {
+        final Map<String, StringBuilder> keys = new HashMap<>();
+        for (final Link link : action.getLinks()) {
+            final StringBuilder builder = keys.get(link.getDescription());
+            if (builder == null) {
+                keys.put(link.getDescription(), new StringBuilder(link.getTargetKey()));
+            } else {
+                builder.append(LINK_DELIMITER).append(link.getTargetKey());
+            }
+        }
+
+        final Map<String, String> links = new HashMap<>(keys.size() * 2);
+        keys.forEach((type, builder) -> links.put(type, builder.toString()));
+        return links;
+    }
 
-        return outputFormatter.truncate(links, delimeter);
+    private String getLinkValue(final String linkType, final Map<String, String> linksByType) {
+        return outputFormatter.truncate(linksByType.getOrDefault(linkType, ""), LINK_DELIMITER);
     }
 
     private String getAllLinksValue(final Action action) {
-        final String delimeter = " ";
         final String links = action.getLinks().stream()
                 .map(Link::getTargetKey)
-                .collect(Collectors.joining(delimeter));
+                .collect(Collectors.joining(LINK_DELIMITER));
 
-        return outputFormatter.truncate(links, delimeter);
+        return outputFormatter.truncate(links, LINK_DELIMITER);
     }
 
-    private static long getTotalStatusTime(final String statusType, final Map<String, StatusTime> statusTimeMap) {
-        if (statusTimeMap.containsKey(statusType)) {
-            return statusTimeMap.get(statusType).getTimeinstatus();
+    /**
+     * The action's status times, at the index of their status in the columns, in one pass over the status times.
+     */
+    private static StatusTime[] indexStatusTimes(final Map<String, Integer> statusIndexes, final Action action) {
+        final StatusTime[] statusTimes = new StatusTime[statusIndexes.size()];
+        for (final Map.Entry<String, StatusTime> entry : action.getStatusTimes().entrySet()) {
+            final Integer index = statusIndexes.get(entry.getKey());
+            if (index != null) {
+                statusTimes[index] = entry.getValue();
+            }
         }
-        return 0;
+        return statusTimes;
     }
 
-    private static long getTimeToFirst(final String statusType, final Map<String, StatusTime> statusTimeMap) {
-        if (statusTimeMap.containsKey(statusType)) {
-            return statusTimeMap.get(statusType).getTimetofirst();
-        }
-        return 0;
+    private static long getTotalStatusTime(@Nullable final StatusTime statusTime) {
+        return statusTime == null ? 0 : statusTime.getTimeinstatus();
     }
 
-    private static long getTimeToLast(final String statusType, final Map<String, StatusTime> statusTimeMap) {
-        if (statusTimeMap.containsKey(statusType)) {
-            return statusTimeMap.get(statusType).getTimetolast();
-        }
-        return 0;
+    private static long getTimeToFirst(@Nullable final StatusTime statusTime) {
+        return statusTime == null ? 0 : statusTime.getTimetofirst();
+    }
+
+    private static long getTimeToLast(@Nullable final StatusTime statusTime) {
+        return statusTime == null ? 0 : statusTime.getTimetolast();
     }
 
     private static String getAllStatuses(final Action action) {
@@ -1,36 +1,53 @@
 package com.indeed.jiraactions;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.indeed.jiraactions.api.customfields.CustomFieldDefinition;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
 import org.joda.time.DateMidnight;
 import org.joda.time.DateTime;
 import org.joda.time.Days;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
 public class TsvFileWriter {
     private static final Logger log = LoggerFactory.getLogger(TsvFileWriter.class);
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private static final int GZIP_WRITE_BUFFER_SIZE = 256 * 1024;
+    private static final long GZIP_FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
 
     private final JiraActionsIndexBuilderConfig config;
+    private final HttpClient httpClient;
     private final OutputFormatter outputFormatter;
     private final CustomFieldOutputter customFieldOutputter;
     private final Map<DateMidnight, WriterData> writerDataMap;
@@ -39,9 +56,11 @@ public class TsvFileWriter {
     private final List<TSVColumnSpec> columnSpecsJiraissues;
     private List<String> fields = new ArrayList<>();
     private final List<String[]> issues = new ArrayList<>();
+    private final TsvRowEncoder rowEncoder = new TsvRowEncoder();
     private final boolean buildJiraIssuesApi;
 
     public TsvFileWriter(final JiraActionsIndexBuilderConfig config,
+                         final HttpClient httpClient,
                          final List<String> linkTypes,
                          final List<String> statusTypes,
                          final boolean buildJiraIssuesApi,
@@ -49,6 +68,7 @@ public class TsvFileWriter {
                          final CustomFieldOutputter customFieldOutputter
     ) {
         this.config = config;
+        this.httpClient = httpClient;
         this.buildJiraIssuesApi = buildJiraIssuesApi;
         this.outputFormatter = outputFormatter;
         this.customFieldOutputter = customFieldOutputter;
@@ -168,14 +188,13 @@ public class TsvFileWriter {
 
     private void createFileAndWriteHeaders(final DateTime day) throws IOException {
         final String filename = String.format("%s_%s.tsv", config.getIndexName(), reformatDate(day));
-        final File file = new File(filename);
-        if (!config.getRetainTSV() && StringUtils.isNotEmpty(config.getIuploadURL())) {
-            file.deleteOnExit();
-        } else {
+        final boolean deleteOnExit = !config.getRetainTSV() && StringUtils.isNotEmpty(config.getIuploadURL());
+        if (!deleteOnExit) {
             log.info("Not deleting tsv file because retain.tsv is set or iuploadurl is unset");
         }
 
-        final BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+        final WriterData writerData = createWriterData(filename, deleteOnExit);
+        final BufferedWriter bw = writerData.getBufferedWriter();
 
         final String headerLine = columnSpecs.stream()
                 .map(TSVColumnSpec::getHeader)
@@ -186,17 +205,13 @@ public class TsvFileWriter {
         bw.newLine();
         bw.flush();
 
-        writerDataMap.put(day.toDateMidnight(), new WriterData(file, bw));
+        writerDataMap.put(day.toDateMidnight(), writerData);
     }
 
     private void createFileAndWriteHeadersJiraIssues(final DateTime day) throws IOException {
         final String filename = String.format("%s_%s.tsv", config.getSnapshotIndexName(), reformatDate(day));
-        final File file = new File(filename);
-        if (!config.getRetainTSV()) {
-            file.deleteOnExit();
-        }
-
-        final BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+        final WriterData writerData = createWriterData(filename, !config.getRetainTSV());
+        final BufferedWriter bw = writerData.getBufferedWriter();
 
         final String headerLine = columnSpecsJiraissues.stream()
                 .map(TSVColumnSpec::getHeader)
@@ -207,7 +222,33 @@ public class TsvFileWriter {
         bw.newLine();
         bw.flush();
 
-        writerDataMapJiraIssues.put(day.toDateMidnight(), new WriterData(file, bw));
+        writerDataMapJiraIssues.put(day.toDateMidnight(), writerData);
+    }
+
+    /**
+     * With tsv.gzip, rows are compressed as they're written, straight into the file that gets uploaded, and the
+     * plaintext file is only written as well if we're keeping it.
+     */
+    private WriterData createWriterData(final String filename, final boolean deleteOnExit) throws IOException {
+        final File file = new File(filename);
+        if (!config.getGzipTSV()) {
+            if (deleteOnExit) {
+                file.deleteOnExit();
+            }
+            return new WriterData(file, null, new BufferedWriter(new FileWriter(file)));
+        }
+
+        final File gzip = new File(filename + ".gz");
+        if (deleteOnExit) {
+            gzip.deleteOnExit();
+        }
+        // Sync flushing, so each periodic flush leaves everything written so far readable in the file
+        final Writer compressed = new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(gzip), GZIP_BUFFER_SIZE, true));
+        final Writer writer = config.getRetainTSV()
+                ? new TeeWriter(compressed, new FileWriter(file))
+                : compressed;
+        return new WriterData(file, gzip, new BufferedWriter(writer, GZIP_WRITE_BUFFER_SIZE));
     }
 
     public void writeActions(final List<Action> actions) throws IOException {
@@ -220,21 +261,26 @@ public class TsvFileWriter {
             final BufferedWriter bw = writerData.getBufferedWriter();
             writerData.setWritten();
             writerData.setDirty(true);
-            final String line = columnSpecs.stream()
-                    .map(columnSpec -> columnSpec.getActionExtractor().apply(action))
-                    .map(rawValue -> rawValue.replace("\t", "\\t"))
-                    .map(rawValue -> rawValue.replace("\n", "\\n"))
-                    .map(rawValue -> rawValue.replace("\r", "\\r"))
-                    .collect(Collectors.joining("\t"));
-            bw.write(line);
-            bw.newLine();
+            rowEncoder.writeRow(columnSpecs, action, bw);
         }
 
-        writerDataMap.values().stream()
-                .filter(WriterData::isDirty).forEach(x -> {
+        flushDirty(writerDataMap);
+    }
+
+    /**
+     * Plaintext files are flushed after every issue. Compressed ones are left to fill their buffers, and only flushed
+     * every so often so there's something to look at while a long build runs.
+     */
+    private void flushDirty(final Map<DateMidnight, WriterData> dataMap) {
+        final long now = System.nanoTime();
+        dataMap.values().stream()
+                .filter(WriterData::isDirty)
+                .filter(x -> x.getGzipFile() == null || now - x.getLastFlushed() >= GZIP_FLUSH_INTERVAL_NANOS)
+                .forEach(x -> {
             try {
                 x.getBufferedWriter().flush();
                 x.setDirty(false);
+                x.setLastFlushed(now);
             } catch (final IOException e) {
                 log.error("Failed to flush.", e);
             }
@@ -256,37 +302,24 @@ public class TsvFileWriter {
             final BufferedWriter bw = writerData.getBufferedWriter();
             writerData.setWritten();
             writerData.setDirty(true);
-            final String line = columnSpecsJiraissues.stream()
-                    .map(columnSpec -> columnSpec.getActionExtractor().apply(action))
-                    .map(rawValue -> rawValue.replace("\t", "\\t"))
-                    .map(rawValue -> rawValue.replace("\n", "\\n"))
-                    .map(rawValue -> rawValue.replace("\r", "\\r"))
-                    .collect(Collectors.joining("\t"));
-            bw.write(line);
-            bw.newLine();
-
-            writerDataMapJiraIssues.values().stream()
-                    .filter(WriterData::isDirty).forEach(x -> {
-                try {
-                    x.getBufferedWriter().flush();
-                    x.setDirty(false);
-                } catch (final IOException e) {
-                    log.error("Failed to flush.", e);
-                }
-            });
+            rowEncoder.writeRow(columnSpecsJiraissues, action, bw);
+
+            flushDirty(writerDataMapJiraIssues);
         } else {
             final String[] line = columnSpecsJiraissues.stream()
                     .map(columnSpec -> columnSpec.getActionExtractor().apply(action))
-                    .map(rawValue -> rawValue.replace("\t", "\\t"))
-                    .map(rawValue -> rawValue.replace("\n", "\\n"))
-                    .map(rawValue -> rawValue.replace("\r", "\\r"))
+                    .map(TsvRowEncoder::escape)
                     .toArray(String[]::new);
             issues.add(line);
         }
     }
 
     private static final int NUM_RETRIES = 5;
+    private static final long RETRY_BACKOFF_MILLIS = 1000;
     public void uploadTsvFile(final boolean jiraIssuesApi) {
+        final Map<DateMidnight, WriterData> dataMap = jiraIssuesApi ? writerDataMapJiraIssues : writerDataMap;
+        closeWriters(dataMap);
+
         if (StringUtils.isEmpty(config.getIuploadURL())) {
             log.info("Skipping upload because iuploadurl is empty.");
             return;
@@ -300,21 +333,84 @@ public class TsvFileWriter {
         final String userPass = config.getIuploadUsername() + ":" + config.getIuploadPassword();
         final String basicAuth = "Basic " + new String(new Base64().encode(userPass.getBytes()));
 
-        final Map<DateMidnight, WriterData> dataMap = jiraIssuesApi ? writerDataMapJiraIssues : writerDataMap;
-        dataMap.values().forEach(wd -> {
+        final String url = jiraIssuesApi ? iuploadUrlJiraIssues : iuploadUrl;
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final List<UploadResult> results = new ArrayList<>(dataMap.size());
+        final int threads = Math.min(config.getUploadThreads(), dataMap.size());
+        if (threads <= 1) {
+            dataMap.values().forEach(wd -> results.add(uploadFile(wd, url, basicAuth)));
+        } else {
+            // Each day's file is compressed (if it isn't already) and uploaded on its own thread
+            final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("upload-%d")
+                    .build());
+            try {
+                final Map<WriterData, Future<UploadResult>> uploads = new LinkedHashMap<>();
+                for (final WriterData wd : dataMap.values()) {
+                    uploads.put(wd, executor.submit(() -> uploadFile(wd, url, basicAuth)));
+                }
+                for (final Map.Entry<WriterData, Future<UploadResult>> upload : uploads.entrySet()) {
+                    results.add(waitForUpload(upload.getKey(), upload.getValue()));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        stopwatch.stop();
+        final long uploaded = results.stream().filter(result -> result.status == UploadStatus.UPLOADED).count();
+        final List<String> failed = results.stream()
+                .filter(result -> result.status == UploadStatus.FAILED)
+                .map(result -> result.filename)
+                .sorted()
+                .collect(Collectors.toList());
+        if (failed.isEmpty()) {
+            log.info("Uploaded {} files in {} ms.", uploaded, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        } else {
+            log.error("Uploaded {} files and failed to upload {} in {} ms: {}", uploaded, failed.size(),
+                    stopwatch.elapsed(TimeUnit.MILLISECONDS), failed);
+        }
+    }
+
+    private UploadResult waitForUpload(final WriterData wd, final Future<UploadResult> upload) {
+        try {
+            return upload.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new UploadResult(wd, UploadStatus.FAILED);
+        } catch (final ExecutionException e) {
+            log.error("Failed to upload file: " + wd.getFile().getName() + ".", e.getCause());
+            return new UploadResult(wd, UploadStatus.FAILED);
+        }
+    }
+
+    /**
+     * Finishes every file, whether or not it's uploaded; a compressed file isn't complete until it's closed.
+     */
+    private void closeWriters(final Map<DateMidnight, WriterData> dataMap) {
+        for (final WriterData wd : dataMap.values()) {
             try {
                 wd.getBufferedWriter().close();
             } catch (final IOException e) {
                 log.error("Failed to close " + wd.file.getName() + ".", e);
             }
+        }
+    }
 
-            if (!wd.isWritten()) {
-                return;
-            }
-            final HttpPost httpPost = jiraIssuesApi ? new HttpPost(iuploadUrlJiraIssues) : new HttpPost(iuploadUrl);
+    private UploadResult uploadFile(final WriterData wd, final String url, final String basicAuth) {
+        if (!wd.isWritten()) {
+            return new UploadResult(wd, UploadStatus.SKIPPED); // Nothing happened that day
+        }
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final HttpPost httpPost = new HttpPost(url);
 
-            final byte[] buffer = new byte[1024];
-            final File gzip = new File(wd.getFile().getName() + ".gz");
+        final File gzip;
+        if (wd.getGzipFile() != null) {
+            gzip = wd.getGzipFile(); // Already compressed as it was written
+        } else {
+            final byte[] buffer = new byte[64 * 1024];
+            gzip = new File(wd.getFile().getName() + ".gz");
             gzip.deleteOnExit();
 
             try (final FileInputStream in = new FileInputStream(wd.getFile())) {
@@ -327,37 +423,73 @@ public class TsvFileWriter {
                 }
             } catch (final IOException e) {
                 log.error(String.format("Failed to gzip file: %s", wd.getFile().getName()), e);
-                return;
+                return new UploadResult(wd, UploadStatus.FAILED);
             }
+        }
+        final long gzipMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
 
-            httpPost.setHeader("Authorization", basicAuth);
-            httpPost.setEntity(MultipartEntityBuilder.create()
-                    .addBinaryBody("file", gzip, ContentType.MULTIPART_FORM_DATA, gzip.getName())
-                    .build());
+        httpPost.setHeader("Authorization", basicAuth);
+        httpPost.setEntity(MultipartEntityBuilder.create()
+                .addBinaryBody("file", gzip, ContentType.MULTIPART_FORM_DATA, gzip.getName())
+                .build());
 
-            for (int i = 0; i < NUM_RETRIES; i++) {
+        for (int i = 0; i < NUM_RETRIES; i++) {
+            if (i > 0) {
+                // Jittered, so files that failed together don't all retry at the same moment
+                final long backoff = RETRY_BACKOFF_MILLIS << (i - 1);
                 try {
-                    final HttpResponse response = HttpClientBuilder.create().build().execute(httpPost);
-                    log.info("Http response: " + response.getStatusLine().toString() + ": " + wd.file.getName() + ".");
-                    if (response.getStatusLine().getStatusCode() == 200) {
-                        return;
-                    }
-                } catch (final IOException e) {
-                    log.warn("Failed to upload file: " + wd.file.getName() + ".", e);
+                    Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.error("Interrupted while uploading file: " + wd.file.getName() + ".");
+                    return new UploadResult(wd, UploadStatus.FAILED);
                 }
             }
-            log.error("Retries expired, unable to upload file: " + wd.file.getName() + ".");
-        });
+            try {
+                final HttpResponse response = httpClient.execute(httpPost);
+                EntityUtils.consume(response.getEntity());
+                log.info("Http response: {}: {} after {} ms ({} ms compressing, {} attempts).",
+                        response.getStatusLine(), wd.file.getName(), stopwatch.elapsed(TimeUnit.MILLISECONDS),
+                        gzipMillis, i + 1);
+                if (response.getStatusLine().getStatusCode() == 200) {
+                    return new UploadResult(wd, UploadStatus.UPLOADED);
+                }
+            } catch (final IOException e) {
+                log.warn("Failed to upload file: " + wd.file.getName() + ".", e);
+            }
+        }
+        log.error("Retries expired, unable to upload file: " + wd.file.getName() + ".");
+        return new UploadResult(wd, UploadStatus.FAILED);
+    }
+
+    private enum UploadStatus {
+        UPLOADED,
+        SKIPPED,
+        FAILED
+    }
+
+    private static class UploadResult {
+        private final String filename;
+        private final UploadStatus status;
+
+        private UploadResult(final WriterData wd, final UploadStatus status) {
+            this.filename = wd.getFile().getName();
+            this.status = status;
+        }
     }
 
     private static class WriterData {
         private final File file;
+        @Nullable
+        private final File gzipFile; // Only when writing compressed
         private final BufferedWriter bw;
         private boolean written = false;
         private boolean dirty = false;
+        private long lastFlushed = System.nanoTime();
 
-        private WriterData(final File file, final BufferedWriter bw) {
+        private WriterData(final File file, @Nullable final File gzipFile, final BufferedWriter bw) {
             this.file = file;
+            this.gzipFile = gzipFile;
             this.bw = bw;
         }
 
@@ -365,6 +497,11 @@ public class TsvFileWriter {
             return file;
         }
 
+        @Nullable
+        private File getGzipFile() {
+            return gzipFile;
+        }
+
         private BufferedWriter getBufferedWriter() {
             return bw;
         }
@@ -384,5 +521,47 @@ public class TsvFileWriter {
         private void setDirty(final boolean dirty) {
             this.dirty = dirty;
         }
+
+        private long getLastFlushed() {
+            return lastFlushed;
+        }
+
+        private void setLastFlushed(final long lastFlushed) {
+            this.lastFlushed = lastFlushed;
+        }
+    }
+
+    /**
+     * Writes everything to both writers, for a compressed file with a plaintext copy.
+     */
+    private static class TeeWriter extends Writer {
+        private final Writer first;
+        private final Writer second;
+
+        private TeeWriter(final Writer first, final Writer second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) throws IOException {
+            first.write(cbuf, off, len);
+            second.write(cbuf, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                first.close();
+            } finally {
+                second.close();
+            }
+        }
     }
 }
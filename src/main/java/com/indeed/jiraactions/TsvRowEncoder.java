@@ -0,0 +1,106 @@
+package com.indeed.jiraactions;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Writes a row of columns in one pass: each value is escaped straight into a buffer that's reused for every row,
+ * and numeric columns are written from the number without making a string of it. Not thread-safe; like the files
+ * it writes to, it's only used by one thread at a time.
+ */
+class TsvRowEncoder {
+    private static final char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+
+    private char[] buffer = new char[4096];
+    private int length;
+
+    void writeRow(final List<TSVColumnSpec> columnSpecs, final Action action, final Writer writer) throws IOException {
+        length = 0;
+        for (int i = 0; i < columnSpecs.size(); i++) {
+            if (i > 0) {
+                append('\t');
+            }
+            final TSVColumnSpec columnSpec = columnSpecs.get(i);
+            final ToLongFunction<Action> longExtractor = columnSpec.getLongExtractor();
+            if (longExtractor == null) {
+                appendEscaped(columnSpec.getActionExtractor().apply(action));
+            } else {
+                appendLong(longExtractor.applyAsLong(action));
+            }
+        }
+        for (final char c : LINE_SEPARATOR) {
+            append(c);
+        }
+        writer.write(buffer, 0, length);
+    }
+
+    /**
+     * Tabs, newlines and carriage returns would break the row up, so they're written as {@code \t}, {@code \n} and
+     * {@code \r} instead.
+     */
+    static String escape(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (needsEscaping(value.charAt(i))) {
+                final TsvRowEncoder encoder = new TsvRowEncoder();
+                encoder.appendEscaped(value);
+                return new String(encoder.buffer, 0, encoder.length);
+            }
+        }
+        return value;
+    }
+
+    private void appendEscaped(final String value) {
+        ensureCapacity(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (needsEscaping(c)) {
+                append('\\');
+                append(c == '\t' ? 't' : c == '\n' ? 'n' : 'r');
+            } else {
+                append(c);
+            }
+        }
+    }
+
+    private void appendLong(final long value) {
+        if (value == Long.MIN_VALUE) { // Can't be negated
+            appendEscaped(String.valueOf(value));
+            return;
+        }
+
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+        }
+        long remaining = Math.abs(value);
+        final int start = length;
+        do {
+            buffer[length++] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        // The digits went in least significant first
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            final char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+    }
+
+    private void append(final char c) {
+        ensureCapacity(1);
+        buffer[length++] = c;
+    }
+
+    private void ensureCapacity(final int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private static boolean needsEscaping(final char c) {
+        return c == '\t' || c == '\n' || c == '\r';
+    }
+}
@@ -5,9 +5,17 @@ import com.indeed.util.core.nullsafety.ReturnValuesAreNonnullByDefault;
 
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Collection;
 
 @ParametersAreNonnullByDefault
 @ReturnValuesAreNonnullByDefault
 public interface UserLookupService {
     User getUser(@Nullable final String key);
+
+    /**
+     * Hint that these users are about to be needed. Implementations that look users up remotely can resolve them
+     * all at once here instead of one by one in {@link #getUser(String)}.
+     */
+    default void prefetchUsers(final Collection<String> keys) {
+    }
 }
@@ -0,0 +1,105 @@
+package com.indeed.jiraactions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The write stage of a pipelined {@link Paginator}: one thread writes each issue's rows in the order they were
+ * submitted. Like the fetch stage, it's bounded in pages: the issues of up to {@code depth} finished pages (and the
+ * page being built) can wait to be written, so building can't get arbitrarily far ahead of writing.
+ */
+class WriteStage {
+    private static final Logger log = LoggerFactory.getLogger(WriteStage.class);
+    private static final Task END = new Task("", () -> { });
+    private static final Task PAGE_END = new Task("", () -> { });
+
+    private final BlockingQueue<Task> writes = new LinkedBlockingQueue<>();
+    private final Semaphore pages;
+    private final StageTimer timer = new StageTimer("write", 1);
+    private final Thread thread;
+
+    WriteStage(final int depth) {
+        this.pages = new Semaphore(depth);
+        this.thread = new Thread(this::write, "write-actions");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @FunctionalInterface
+    interface Write {
+        void run() throws IOException;
+    }
+
+    void submit(final String issueKey, final Write write) throws InterruptedException {
+        writes.put(new Task(issueKey, write));
+    }
+
+    /**
+     * Marks the end of a page's issues. Waits if the writer is already {@code depth} pages behind.
+     */
+    void endPage() throws InterruptedException {
+        pages.acquire();
+        writes.put(PAGE_END);
+    }
+
+    /**
+     * Waits for everything submitted to be written.
+     */
+    void finish() throws InterruptedException {
+        writes.put(END);
+        thread.join();
+    }
+
+    /**
+     * Gives up on anything not yet written, e.g. when the build failed.
+     */
+    void abort() {
+        thread.interrupt();
+    }
+
+    StageTimer getTimer() {
+        return timer;
+    }
+
+    private void write() {
+        while (true) {
+            final Task task;
+            try {
+                task = writes.take();
+            } catch (final InterruptedException e) {
+                return;
+            }
+            if (task == END) {
+                return;
+            }
+            if (task == PAGE_END) {
+                pages.release();
+                continue;
+            }
+
+            try {
+                timer.time(() -> {
+                    task.write.run();
+                    return null;
+                });
+            } catch (final Exception e) {
+                log.error("Error writing actions for issue {}.", task.issueKey, e);
+            }
+        }
+    }
+
+    private static class Task {
+        private final String issueKey;
+        private final Write write;
+
+        private Task(final String issueKey, final Write write) {
+            this.issueKey = issueKey;
+            this.write = write;
+        }
+    }
+}
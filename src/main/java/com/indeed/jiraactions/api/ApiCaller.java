@@ -4,17 +4,20 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.indeed.jiraactions.JiraActionsIndexBuilderConfig;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.net.ssl.HttpsURLConnection;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.util.List;
-import java.util.Map;
+import java.io.InterruptedIOException;
 import java.util.Objects;
 
 public class ApiCaller {
@@ -22,58 +25,75 @@ public class ApiCaller {
 
     private static final Logger log = LoggerFactory.getLogger(ApiCaller.class);
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int MAX_THROTTLED_RETRIES = 8;
+    private final HttpClient httpClient;
+    private final JiraRateLimiter rateLimiter;
     private final String authentication;
     private String jsessionId = null;
     private String upstream = null;
-    private String cookies = "";
+    private volatile String cookies = "";
     private String pinnedNode = null;
 
-    public ApiCaller(final JiraActionsIndexBuilderConfig config) {
+    public ApiCaller(final JiraActionsIndexBuilderConfig config, final HttpClient httpClient) {
         this.config = config;
+        this.httpClient = httpClient;
+        this.rateLimiter = new JiraRateLimiter(config.getJiraRateLimit());
         this.authentication = getBasicAuth();
     }
 
     public JsonNode getJsonNode(final String url) throws IOException {
-        HttpsURLConnection urlConnection = null;
-        Map<String, List<String>> headers = null;
-        BufferedReader br = null;
-        String apiResults = null;
-        try {
-            urlConnection = getURLConnection(url);
-            headers = urlConnection.getRequestProperties();
-            final InputStream in = urlConnection.getInputStream();
-            br = new BufferedReader(new InputStreamReader(in));
-            apiResults = br.readLine();
+        return get(url, objectMapper::readTree);
+    }
 
-            final String anodeId = urlConnection.getHeaderField("X-ANODEID");
+    /**
+     * Hands the response body to {@code reader} as it comes off the wire, so large responses never need to be
+     * held in memory as a whole. Every request waits its turn with the shared rate limiter, and requests JIRA
+     * throttles are retried once it says we can.
+     */
+    public <T> T get(final String url, final ResponseReader<T> reader) throws IOException {
+        int throttled = 0;
+        while (true) {
+            try {
+                rateLimiter.acquire();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting to call " + url);
+            }
 
-            if(!Objects.equals(pinnedNode, anodeId)) {
-                if(pinnedNode != null) {
-                    log.warn("Expected X-ANODEID={} but found {}", pinnedNode, anodeId);
-                }
-                final Map<String, List<String>> responseHeaders = urlConnection.getHeaderFields();
-                final List<String> cookies = responseHeaders.get("Set-Cookie");
-                if(cookies != null) {
-                    for (final String cookie : cookies) {
-                        if (cookie.startsWith("JSESSIONID=")) {
-                            final int start = "JSESSIONID=".length();
-                            final int end = cookie.contains(";") ? cookie.indexOf(";") : cookie.length();
-                            jsessionId = cookie.substring(start, end);
-                        } else if (cookie.startsWith("upstream")) {
-                            final int start = "upstream=".length();
-                            final int end = cookie.contains(";") ? cookie.indexOf(";") : cookie.length();
-                            upstream = cookie.substring(start, end);
-                        }
-                    }
-                    if (jsessionId != null || upstream != null) {
-                        setCookies();
-                        pinnedNode = anodeId;
-                        log.info("Set JSESSION={};upstream={}. Pinning to X-ANODEID={}",
-                                jsessionId, upstream, anodeId);
-                    }
-                }
+            try {
+                return get(url, reader, throttled < MAX_THROTTLED_RETRIES ? throttled : -1);
+            } catch (final ThrottledException e) {
+                throttled++;
+                log.warn("JIRA responded {} to {}, pausing all requests for {} ms before retry {}/{}.",
+                        e.statusCode, url, e.pauseMillis, throttled, MAX_THROTTLED_RETRIES);
             }
-            return objectMapper.readTree(apiResults);
+        }
+    }
+
+    /**
+     * @param throttled how many times this request has been throttled already, or -1 if it shouldn't be retried
+     */
+    private <T> T get(final String url, final ResponseReader<T> reader, final int throttled) throws IOException {
+        final HttpGet request = getRequest(url);
+        HttpResponse response = null;
+        try {
+            response = httpClient.execute(request);
+            rateLimiter.onResponse(response);
+            final StatusLine status = response.getStatusLine();
+            if (throttled >= 0 && isThrottled(status.getStatusCode())) {
+                throw new ThrottledException(status.getStatusCode(), rateLimiter.onThrottled(response, throttled));
+            }
+            if (status.getStatusCode() >= 400) {
+                throw new HttpResponseException(status.getStatusCode(), status.getReasonPhrase());
+            }
+
+            pinToNode(response);
+            rateLimiter.onSuccess();
+            try (final InputStream in = response.getEntity().getContent()) {
+                return reader.read(in);
+            }
+        } catch (final ThrottledException e) {
+            throw e;
         } catch (final IOException e) {
             final StringBuilder sb = new StringBuilder();
 
@@ -81,56 +101,44 @@ public class ApiCaller {
             sb.append("\"Request\": {");
 
             sb.append("\"URL\": \"").append(url).append("\",");
-            if (headers != null) {
-                sb.append("\"Headers\": {");
-                for (final Map.Entry<String, List<String>> header : headers.entrySet()) {
-                    final String key = header.getKey();
-                    final String value;
-                    if ("Authorization".equals(key)) {
-                        value = "<Omitted>";
-                    } else {
-                        value = String.join(",", header.getValue());
-                    }
-                    sb.append("\"").append(key).append("\": \"").append(value).append("\",");
+            sb.append("\"Headers\": {");
+            for (final Header header : request.getAllHeaders()) {
+                final String key = header.getName();
+                final String value;
+                if ("Authorization".equals(key)) {
+                    value = "<Omitted>";
+                } else {
+                    value = header.getValue();
                 }
+                sb.append("\"").append(key).append("\": \"").append(value).append("\",");
             }
             sb.append("}");
 
             sb.append("}");
 
-            if (urlConnection != null) {
+            if (response != null) {
                 sb.append(", \"Response\": {");
-                for (final Map.Entry<String, List<String>> header : urlConnection.getHeaderFields().entrySet()) {
-                    final String key = header.getKey();
+                for (final Header header : response.getAllHeaders()) {
+                    final String key = header.getName();
                     final String value;
                     if ("Set-Cookie".equals(key)) {
                         value = "<Omitted>";
                     } else {
-                        value = String.join(",", header.getValue());
+                        value = header.getValue();
                     }
                     sb.append("\"").append(key).append("\": \"").append(value).append("\",");
                 }
-                sb.append("\"Code\": ").append(urlConnection.getResponseCode()).append(",");
-                sb.append("\"Message\": \"").append(urlConnection.getResponseMessage()).append("\",");
-            }
-            if (apiResults != null) {
-                sb.append("\"Body\": \"").append(apiResults).append("\"");
-            }
-            if (urlConnection != null) {
-                final InputStream error = urlConnection.getErrorStream();
-                if(error != null) {
-                    final BufferedReader errorBr = new BufferedReader(new InputStreamReader(error));
+                sb.append("\"Code\": ").append(response.getStatusLine().getStatusCode()).append(",");
+                sb.append("\"Message\": \"").append(response.getStatusLine().getReasonPhrase()).append("\",");
+                if (e instanceof HttpResponseException && response.getEntity() != null) {
                     sb.append("\"Error Body\": \"");
-                    String line = errorBr.readLine();
-                    while (line != null) {
-                        sb.append(line).append(System.lineSeparator());
-                        line = errorBr.readLine();
+                    try {
+                        sb.append(EntityUtils.toString(response.getEntity()));
+                    } catch (final IOException ignored) {
+                        sb.append("Unable to open error stream for reading");
                     }
-                    errorBr.close();
-                } else {
-                    sb.append("Unable to open error stream for reading");
+                    sb.append("\"");
                 }
-                sb.append("\"");
             }
 
             sb.append("}");
@@ -138,24 +146,58 @@ public class ApiCaller {
             log.error("Encountered connection error: " + sb);
             throw e;
         } finally {
-            if (br != null) {
-                try {
-                    br.close();
-                } catch (final IOException ignored) {
+            if (response != null) {
+                // Reading whatever is left of the body lets the connection go back to the pool
+                EntityUtils.consumeQuietly(response.getEntity());
+            }
+        }
+    }
+
+    /**
+     * Requests can be made from several threads at once, so the session pinning state is only touched while
+     * holding the lock.
+     */
+    private synchronized void pinToNode(final HttpResponse response) {
+        final Header anodeHeader = response.getFirstHeader("X-ANODEID");
+        final String anodeId = anodeHeader == null ? null : anodeHeader.getValue();
+
+        if(!Objects.equals(pinnedNode, anodeId)) {
+            if(pinnedNode != null) {
+                log.warn("Expected X-ANODEID={} but found {}", pinnedNode, anodeId);
+            }
+            final Header[] cookies = response.getHeaders("Set-Cookie");
+            if(cookies.length > 0) {
+                for (final Header header : cookies) {
+                    final String cookie = header.getValue();
+                    if (cookie.startsWith("JSESSIONID=")) {
+                        final int start = "JSESSIONID=".length();
+                        final int end = cookie.contains(";") ? cookie.indexOf(";") : cookie.length();
+                        jsessionId = cookie.substring(start, end);
+                    } else if (cookie.startsWith("upstream")) {
+                        final int start = "upstream=".length();
+                        final int end = cookie.contains(";") ? cookie.indexOf(";") : cookie.length();
+                        upstream = cookie.substring(start, end);
+                    }
+                }
+                if (jsessionId != null || upstream != null) {
+                    setCookies();
+                    pinnedNode = anodeId;
+                    log.info("Set JSESSION={};upstream={}. Pinning to X-ANODEID={}",
+                            jsessionId, upstream, anodeId);
                 }
             }
         }
     }
 
-    private HttpsURLConnection getURLConnection(final String urlString) throws IOException {
-        final URL url = new URL(urlString);
-        final HttpsURLConnection urlConnection = (HttpsURLConnection) url.openConnection();
-        urlConnection.setRequestProperty("Authorization", authentication);
+    private HttpGet getRequest(final String url) {
+        final HttpGet request = new HttpGet(url);
+        request.setHeader("Authorization", authentication);
 
+        final String cookies = this.cookies;
         if(cookies.length() > 0) {
-            urlConnection.setRequestProperty("Cookie", cookies);
+            request.setHeader("Cookie", cookies);
         }
-        return urlConnection;
+        return request;
     }
 
     private void setCookies() {
@@ -172,6 +214,27 @@ public class ApiCaller {
         cookies = sb.toString();
     }
 
+    private static boolean isThrottled(final int statusCode) {
+        return statusCode == 429 || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE;
+    }
+
+    private static class ThrottledException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+        private final long pauseMillis;
+
+        private ThrottledException(final int statusCode, final long pauseMillis) {
+            super("Throttled by JIRA with " + statusCode);
+            this.statusCode = statusCode;
+            this.pauseMillis = pauseMillis;
+        }
+    }
+
+    public interface ResponseReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
     private String getBasicAuth() {
         final String userPass = config.getJiraUsername() + ":" + config.getJiraPassword();
         final String basicAuth = "Basic " + new String(new Base64().encode(userPass.getBytes()));
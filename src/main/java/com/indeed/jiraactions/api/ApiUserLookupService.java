@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.indeed.jiraactions.JiraActionsIndexBuilderConfig;
 import com.indeed.jiraactions.UserLookupService;
 import com.indeed.jiraactions.api.response.issue.User;
@@ -14,10 +15,21 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 @ParametersAreNonnullByDefault
@@ -27,15 +39,34 @@ public class ApiUserLookupService implements UserLookupService {
     private static final String API_BASE = "/rest/api/2/user";
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
-    private final ConcurrentHashMap<String, User> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<User>> users = new ConcurrentHashMap<>();
     private final ApiCaller apiCaller;
     private final String baseUrl;
-    private long userLookupTime;
+    @Nullable
+    private final ExecutorService executor;
+    private final AtomicLong userLookupTime = new AtomicLong();
+    private final AtomicInteger apiLookups = new AtomicInteger();
+    @Nullable
+    private final UserCache userCache;
+    private final Queue<CompletableFuture<Void>> refreshes = new ConcurrentLinkedQueue<>();
+    private final boolean offline; // Replaying an archive, so only the user cache can be used
 
     public ApiUserLookupService(final JiraActionsIndexBuilderConfig config, final ApiCaller apiCaller) {
         this.apiCaller = apiCaller;
 
         baseUrl = config.getJiraBaseURL() + API_BASE;
+        if (config.getJiraUserLookupThreads() > 0) {
+            executor = Executors.newFixedThreadPool(config.getJiraUserLookupThreads(), new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("user-lookup-%d")
+                    .build());
+        } else {
+            executor = null;
+        }
+        offline = config.getArchiveReplay();
+        userCache = config.getUserCacheFile() == null
+                ? null
+                : UserCache.load(new File(config.getUserCacheFile()), config.getUserCacheTtlHours());
     }
 
     @Override
@@ -44,39 +75,134 @@ public class ApiUserLookupService implements UserLookupService {
             return User.NOBODY;
         }
 
-        if(!users.containsKey(key)) {
-            final User user = lookupUser(key);
-            users.put(key, user);
+        final CompletableFuture<User> lookup = new CompletableFuture<>();
+        final CompletableFuture<User> existing = users.putIfAbsent(key, lookup);
+        if (existing != null) {
+            // Someone else is already looking this user up (or already has), so wait for theirs
+            return existing.join();
         }
 
-        return users.get(key);
+        lookup.complete(resolveUser(key));
+        return lookup.join();
+    }
+
+    /**
+     * Looks up every user we haven't seen yet in parallel, and waits for them. Users that are already being looked
+     * up are waited on rather than requested again.
+     */
+    @Override
+    public void prefetchUsers(final Collection<String> keys) {
+        if (executor == null || offline) {
+            return;
+        }
+
+        final List<CompletableFuture<User>> lookups = new ArrayList<>();
+        for (final String key : keys) {
+            if (StringUtils.isEmpty(key)) {
+                continue;
+            }
+            final CompletableFuture<User> lookup = new CompletableFuture<>();
+            final CompletableFuture<User> existing = users.putIfAbsent(key, lookup);
+            if (existing != null) {
+                lookups.add(existing);
+            } else {
+                executor.execute(() -> lookup.complete(resolveUser(key)));
+                lookups.add(lookup);
+            }
+        }
+        CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0])).join();
     }
 
+    /**
+     * Stops the lookup threads once the build is done with them. Nothing can be looked up after this.
+     */
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * How many users were requested from JIRA, as opposed to found in the user cache.
+     */
     public int numLookups() {
-        return users.size();
+        return apiLookups.get();
+    }
+
+    /**
+     * Writes the user cache back to disk, including any entries still being refreshed. Failing to write it only
+     * costs the next run some lookups, so it's logged rather than thrown.
+     */
+    public void saveUserCache() {
+        if (userCache == null) {
+            return;
+        }
+        CompletableFuture.allOf(refreshes.toArray(new CompletableFuture<?>[0])).join();
+        try {
+            userCache.save();
+        } catch (final IOException e) {
+            log.warn("Unable to save the user cache.", e);
+        }
     }
 
     private String getApiUrlForUser(final String key) throws UnsupportedEncodingException {
         return baseUrl + "?expand=groups&key=" + URLEncoder.encode(key, "UTF-8");
     }
 
+    /**
+     * Time spent in lookups summed over every thread doing them, so with prefetching it can exceed wall time.
+     */
     public long getUserLookupTotalTime() {
-        return userLookupTime;
+        return userLookupTime.get();
+    }
+
+    private User resolveUser(final String key) {
+        final User cached = userCache == null ? null : userCache.get(key);
+        if (cached != null && (offline || !userCache.isStale(key))) {
+            return cached;
+        }
+        if (offline) {
+            log.warn("User {} isn't in the user cache, using fallback.", key);
+            return User.getFallbackUser(key);
+        }
+        if (cached != null && executor != null) {
+            // Keep this run consistent with what we have, and have a fresh copy for the next one
+            refreshes.add(CompletableFuture.runAsync(() -> lookupUser(key), executor));
+            return cached;
+        }
+
+        final User user = lookupUser(key);
+        if (user != null) {
+            return user;
+        } else if (cached != null) {
+            return cached;
+        } else {
+            return User.getFallbackUser(key);
+        }
     }
 
+    /**
+     * @return the user, or null if JIRA couldn't give it to us. Only users JIRA returned are cached.
+     */
+    @Nullable
     private User lookupUser(final String key) {
         final long start = System.currentTimeMillis();
+        apiLookups.incrementAndGet();
 
         try {
             final String url = getApiUrlForUser(key);
             final JsonNode json = apiCaller.getJsonNode(url);
-            return parseUser(json);
-        } catch(final IOException e) {
+            final User user = parseUser(json);
+            if (userCache != null) {
+                userCache.put(user);
+            }
+            return user;
+        } catch(final IOException | RuntimeException e) {
             log.error("Could not find user " + key + ". Using fallback.", e);
-            return User.getFallbackUser(key);
+            return null;
         } finally {
             final long end = System.currentTimeMillis();
-            userLookupTime += (end - start);
+            userLookupTime.addAndGet(end - start);
         }
     }
 
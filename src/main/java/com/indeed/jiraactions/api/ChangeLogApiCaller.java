@@ -0,0 +1,230 @@
+package com.indeed.jiraactions.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.indeed.jiraactions.JiraActionsIndexBuilderConfig;
+import com.indeed.jiraactions.api.response.issue.Issue;
+import com.indeed.jiraactions.api.response.issue.changelog.ChangeLog;
+import com.indeed.jiraactions.api.response.issue.changelog.histories.History;
+import org.apache.http.client.HttpResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills in the histories the search API left out of an issue's changelog. Every page of every truncated changelog
+ * in a page of issues is requested at once on a bounded pool, so a page full of long-lived issues costs about as much
+ * as one of them.
+ */
+public class ChangeLogApiCaller {
+    private static final Logger log = LoggerFactory.getLogger(ChangeLogApiCaller.class);
+    private static final String API_PATH = "/rest/api/2/issue/";
+    private static final int PAGE_SIZE = 100;
+    // How many issues have to 404, with none found before them, before we decide the endpoint isn't there at all
+    private static final int UNSUPPORTED_AFTER_NOT_FOUND = 5;
+    private static final ObjectReader pageReader = new ObjectMapper().readerFor(ChangeLogPage.class);
+
+    private final ApiCaller apiCaller;
+    private final String baseUrl;
+    @Nullable
+    private final ExecutorService executor;
+    private final AtomicInteger issuesCompleted = new AtomicInteger();
+    private final AtomicInteger notFoundBeforeCompleted = new AtomicInteger();
+    private volatile boolean unsupported = false;
+
+    public ChangeLogApiCaller(final JiraActionsIndexBuilderConfig config, final ApiCaller apiCaller) {
+        this.apiCaller = apiCaller;
+        this.baseUrl = config.getJiraBaseURL() + API_PATH;
+        if (config.getJiraChangeLogThreads() > 0) {
+            executor = Executors.newFixedThreadPool(config.getJiraChangeLogThreads(), new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("changelog-%d")
+                    .build());
+        } else {
+            executor = null;
+        }
+    }
+
+    public int getIssuesCompleted() {
+        return issuesCompleted.get();
+    }
+
+    /**
+     * Stops the threads fetching changelogs. Nothing can be fetched after this.
+     */
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Replaces the histories of every issue whose changelog was truncated with its full changelog. If that fails
+     * for an issue, it keeps what the search returned.
+     */
+    public void completeChangeLogs(final List<Issue> issues) {
+        completeChangeLogs(issues, null);
+    }
+
+    /**
+     * Like {@link #completeChangeLogs(List)}, but also saves each changelog page we get to {@code archive}.
+     */
+    public void completeChangeLogs(final List<Issue> issues, @Nullable final ArchiveSink archive) {
+        if (executor == null || unsupported) {
+            return;
+        }
+
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (final Issue issue : issues) {
+            final ChangeLog changeLog = issue.changelog;
+            if (changeLog == null || !changeLog.isTruncated()) {
+                continue;
+            }
+            log.debug("{} has {} histories but only {} were returned.", issue.key, changeLog.total, changeLog.histories.length);
+            futures.add(fetchHistories(issue.key, changeLog.total, archive)
+                    .thenAccept(histories -> {
+                        changeLog.histories = histories;
+                        changeLog.startAt = 0;
+                        changeLog.maxResults = histories.length;
+                        issuesCompleted.incrementAndGet();
+                    })
+                    .exceptionally(e -> {
+                        handleFailure(issue.key, e instanceof CompletionException ? e.getCause() : e);
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private CompletableFuture<History[]> fetchHistories(final String key, final int total,
+                                                        @Nullable final ArchiveSink archive) {
+        final List<CompletableFuture<List<History>>> pages = new ArrayList<>();
+        for (int startAt = 0; startAt < total; startAt += PAGE_SIZE) {
+            final int pageStart = startAt;
+            final int count = Math.min(PAGE_SIZE, total - startAt);
+            pages.add(CompletableFuture.supplyAsync(() -> fetchRange(key, pageStart, count, archive), executor));
+        }
+        return CompletableFuture.allOf(pages.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> pages.stream()
+                        .flatMap(page -> page.join().stream())
+                        .toArray(History[]::new));
+    }
+
+    /**
+     * Reads histories [startAt, startAt + count), in more than one request if JIRA won't return that many at once.
+     */
+    private List<History> fetchRange(final String key, final int startAt, final int count,
+                                     @Nullable final ArchiveSink archive) {
+        final List<History> histories = new ArrayList<>(count);
+        try {
+            while (histories.size() < count) {
+                final int next = startAt + histories.size();
+                final ChangeLogPage page = apiCaller.get(getUrl(key, next, count - histories.size()), in -> {
+                    if (archive == null) {
+                        return pageReader.readValue(in);
+                    }
+                    final byte[] raw = ByteStreams.toByteArray(in);
+                    archive.save(key, raw);
+                    return pageReader.readValue(raw);
+                });
+                if (page.values == null || page.values.length == 0) {
+                    break;
+                }
+                histories.addAll(Arrays.asList(page.values).subList(0, Math.min(page.values.length, count - histories.size())));
+                if (next + page.values.length >= page.total) {
+                    break;
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return histories;
+    }
+
+    /**
+     * Completes changelogs from pages {@link #completeChangeLogs(List, ArchiveSink)} archived earlier, instead of
+     * asking JIRA.
+     * @param pages the archived changelog pages of each issue, in any order
+     */
+    public static void completeFromArchive(final List<Issue> issues, final Map<String, List<byte[]>> pages) throws IOException {
+        for (final Issue issue : issues) {
+            final List<byte[]> issuePages = pages.get(issue.key);
+            if (issuePages == null || issue.changelog == null) {
+                continue;
+            }
+
+            final List<ChangeLogPage> parsed = new ArrayList<>(issuePages.size());
+            for (final byte[] raw : issuePages) {
+                parsed.add(pageReader.readValue(raw));
+            }
+            parsed.sort(Comparator.comparingInt(page -> page.startAt));
+
+            final List<History> histories = new ArrayList<>();
+            for (final ChangeLogPage page : parsed) {
+                if (page.values != null && page.startAt >= histories.size()) {
+                    histories.addAll(Arrays.asList(page.values));
+                }
+            }
+            if (histories.size() > issue.changelog.histories.length) {
+                issue.changelog.histories = histories.toArray(new History[0]);
+                issue.changelog.startAt = 0;
+                issue.changelog.maxResults = histories.size();
+            }
+        }
+    }
+
+    /**
+     * Where to save the raw changelog pages as they're fetched.
+     */
+    public interface ArchiveSink {
+        void save(String key, byte[] raw) throws IOException;
+    }
+
+    private void handleFailure(final String key, final Throwable e) {
+        // A 404 on its own could just be a deleted issue or one we can't see, but if several in a row 404 and we've
+        // never gotten a changelog, it's the endpoint
+        if (e instanceof UncheckedIOException && e.getCause() instanceof HttpResponseException
+                && ((HttpResponseException) e.getCause()).getStatusCode() == 404) {
+            if (issuesCompleted.get() == 0 && notFoundBeforeCompleted.incrementAndGet() >= UNSUPPORTED_AFTER_NOT_FOUND
+                    && !unsupported) {
+                unsupported = true;
+                log.warn("The last {} changelogs weren't found and none ever were, so this JIRA doesn't seem to support "
+                        + API_PATH + "{key}/changelog. Changelogs will be left as the search returns them.",
+                        UNSUPPORTED_AFTER_NOT_FOUND);
+            }
+            log.warn("Couldn't find the full changelog for {}, using the truncated one.", key);
+            return;
+        }
+        log.error("Failed to get the full changelog for {}, using the truncated one.", key, e);
+    }
+
+    private String getUrl(final String key, final int startAt, final int maxResults) throws UnsupportedEncodingException {
+        return baseUrl + URLEncoder.encode(key, "UTF-8") + "/changelog?startAt=" + startAt + "&maxResults=" + maxResults;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class ChangeLogPage {
+        public int startAt;
+        public int maxResults;
+        public int total;
+        public History[] values;
+    }
+}
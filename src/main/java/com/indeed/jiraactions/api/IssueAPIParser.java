@@ -1,34 +1,170 @@
 package com.indeed.jiraactions.api;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.DeserializationProblemHandler;
+import com.indeed.jiraactions.api.customfields.CustomFieldDefinition;
 import com.indeed.jiraactions.api.response.issue.Issue;
+import com.indeed.jiraactions.api.response.issue.fields.Field;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * @author soono on 8/30/16.
  */
 public class IssueAPIParser {
     private static final Logger log = LoggerFactory.getLogger(IssueAPIParser.class);
-    private final static ObjectMapper mapper = new ObjectMapper();
+    private static final String CUSTOM_FIELD_IDS = "customFieldIds";
+    private final static ObjectMapper mapper = new ObjectMapper().addHandler(new CustomFieldHandler());
+    private final static ObjectReader issueReader = mapper.readerFor(Issue.class);
+
+    /**
+     * The custom field ids worth keeping from each issue for these definitions, or null to keep them all.
+     */
+    @Nullable
+    public static Set<String> getCustomFieldIds(@Nullable final CustomFieldDefinition[] definitions) {
+        if (definitions == null) {
+            return null;
+        }
+        return Arrays.stream(definitions)
+                .flatMap(definition -> Arrays.stream(definition.getCustomFieldId()))
+                .collect(Collectors.toSet());
+    }
 
     @Nullable
     public static Issue getObject(final JsonNode issueNode) {
+        return getObject(issueNode, null);
+    }
+
+    /**
+     * @param customFieldIds custom fields to keep, or null to keep them all
+     */
+    @Nullable
+    public static Issue getObject(final JsonNode issueNode, @Nullable final Set<String> customFieldIds) {
         final Issue issue;
         try {
-            issue = mapper.treeToValue(issueNode, Issue.class);
-            if(issue.fields.created == null) {
-                log.warn("Invalid issue {} with no date.", issue.key);
-                return null;
-            }
+            issue = getIssueReader(customFieldIds).readValue(issueNode);
         } catch (final IOException e) {
             log.error("Caught an error trying to parse a JSON node", e);
             return null;
         }
+        return validate(issue);
+    }
+
+    /**
+     * Reads a search response one token at a time, binding each issue as soon as its tokens have been read instead
+     * of first building the whole response as a tree.
+     */
+    public static SearchResult parseSearchResult(final InputStream in) throws IOException {
+        return parseSearchResult(in, null);
+    }
+
+    /**
+     * @param customFieldIds custom fields to keep, or null to keep them all
+     */
+    public static SearchResult parseSearchResult(final InputStream in, @Nullable final Set<String> customFieldIds) throws IOException {
+        final ObjectReader issueReader = getIssueReader(customFieldIds);
+        final ImmutableSearchResult.Builder result = ImmutableSearchResult.builder();
+        try (final JsonParser parser = mapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object but found " + parser.getCurrentToken());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                if ("total".equals(name)) {
+                    result.total(parser.getIntValue());
+                } else if ("maxResults".equals(name)) {
+                    result.maxResults(parser.getIntValue());
+                } else if ("issues".equals(name) && token == JsonToken.START_ARRAY) {
+                    final JsonStreamContext issuesContext = parser.getParsingContext();
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        final Issue issue;
+                        try {
+                            final Issue parsed = issueReader.readValue(parser);
+                            if (parsed.key != null && parsed.fields != null && parsed.fields.updated != null) {
+                                result.addPositions(ImmutableIssuePosition.builder()
+                                        .key(parsed.key)
+                                        .updated(parsed.fields.updated)
+                                        .build());
+                            }
+                            issue = validate(parsed);
+                        } catch (final JsonMappingException e) {
+                            log.error("Caught an error trying to parse an issue", e);
+                            skipTo(parser, issuesContext);
+                            continue;
+                        }
+                        if (issue != null) {
+                            result.addIssues(issue);
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return result.build();
+    }
+
+    private static ObjectReader getIssueReader(@Nullable final Set<String> customFieldIds) {
+        return customFieldIds == null ? issueReader : issueReader.withAttribute(CUSTOM_FIELD_IDS, customFieldIds);
+    }
+
+    /**
+     * JIRA sends every custom field on every issue, and there can be hundreds of them. This keeps only the ones
+     * we have definitions for, and skips over the rest without building anything for them.
+     */
+    private static class CustomFieldHandler extends DeserializationProblemHandler {
+        @Override
+        public boolean handleUnknownProperty(final DeserializationContext context, final JsonParser parser,
+                                             final JsonDeserializer<?> deserializer, final Object beanOrClass,
+                                             final String propertyName) throws IOException {
+            if (!(beanOrClass instanceof Field)) {
+                return false;
+            }
+
+            @SuppressWarnings("unchecked")
+            final Set<String> customFieldIds = (Set<String>) context.getAttribute(CUSTOM_FIELD_IDS);
+            if (customFieldIds == null || customFieldIds.contains(propertyName)) {
+                ((Field) beanOrClass).setOtherProperty(propertyName, context.readValue(parser, JsonNode.class));
+            } else {
+                parser.skipChildren();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Skips the rest of an issue that couldn't be bound, so the next issue in the page can still be read.
+     */
+    private static void skipTo(final JsonParser parser, final JsonStreamContext context) throws IOException {
+        while (parser.getParsingContext() != context) {
+            if (parser.nextToken() == null) {
+                throw new IOException("Unexpected end of input while skipping an issue");
+            }
+        }
+    }
+
+    @Nullable
+    private static Issue validate(final Issue issue) {
+        if(issue.fields.created == null) {
+            log.warn("Invalid issue {} with no date.", issue.key);
+            return null;
+        }
         return issue;
     }
 }
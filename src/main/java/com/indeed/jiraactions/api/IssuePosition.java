@@ -0,0 +1,13 @@
+package com.indeed.jiraactions.api;
+
+import org.immutables.value.Value;
+import org.joda.time.DateTime;
+
+/**
+ * Where an issue falls in the search order, which is updatedDate DESC, issuekey DESC.
+ */
+@Value.Immutable
+public interface IssuePosition {
+    String getKey();
+    DateTime getUpdated();
+}
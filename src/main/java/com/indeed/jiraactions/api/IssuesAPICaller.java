@@ -1,21 +1,46 @@
 package com.indeed.jiraactions.api;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.indeed.jiraactions.JiraActionsIndexBuilderConfig;
 import com.indeed.jiraactions.JiraActionsUtil;
+import com.indeed.jiraactions.api.batch.AimdBatchSizeController;
+import com.indeed.jiraactions.api.batch.BatchSizeController;
+import com.indeed.jiraactions.api.batch.BatchSizeMetrics;
+import com.indeed.jiraactions.api.batch.StepBatchSizeController;
+import com.indeed.jiraactions.api.response.issue.Issue;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.joda.time.Minutes;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.stream.Collectors;
 
 /**
@@ -23,113 +48,424 @@ import java.util.stream.Collectors;
  */
 public class IssuesAPICaller {
     private static final Logger log = LoggerFactory.getLogger(IssuesAPICaller.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
     private static final String API_PATH = "/rest/api/2/search";
+    private static final int MAX_EXCLUDED_KEYS = 250; // Keeps the JQL a reasonable length
 
-    private final String urlBase;
     private final ApiCaller apiCaller;
     private final JiraActionsIndexBuilderConfig config;
     private final boolean buildJiraIssuesApi;
 
     // For Pagination
-    private final int maxPerPage; // Max number of issues per page
-    private int batchSize;
-    private int start = 0; // Current Page
-    private int numTotal = -1; // Total number of issues remaining
+    private final BatchSizeController batchSizeController;
+    private final BatchSizeMetrics batchSizeMetrics; // The whole run, up to the end of the last pass
+    private BatchSizeMetrics passBatchSizeMetrics; // Just this pass
+    private int pass = 0;
+    private final List<Query> queries = new ArrayList<>(); // Newest first
+    private int queryIndex = 0; // Current query
+    private int start = 0; // Current Page within the current query
+
+    // For Partitioning
+    private final int partitionTargetSize;
+
+    // For Keyset Pagination
+    private final boolean keyset;
+    @Nullable
+    private DateTime cursorMinute = null; // Minute of the last issue we've seen in the current query
+    private final Set<String> boundaryKeys = new LinkedHashSet<>(); // Issues we've seen from that minute
 
     private int backoff = 10_000;
 
-    public IssuesAPICaller(final JiraActionsIndexBuilderConfig config, final ApiCaller apiCaller, final boolean buildJiraIssuesApi) throws UnsupportedEncodingException {
+    // For Prefetching
+    private final int prefetchDepth; // Max number of pages in flight at once
+    @Nullable
+    private final ExecutorService prefetchExecutor;
+    private final Deque<Window<?>> windows = new ArrayDeque<>(); // Pages in flight, contiguous from start
+    private final PageFetcher<JsonNode> treeFetcher;
+    private final PageFetcher<List<Issue>> streamingFetcher;
+
+    // For Archiving
+    private final boolean keepRawPages;
+    @Nullable
+    private byte[] lastRawPage = null;
+
+    public IssuesAPICaller(final JiraActionsIndexBuilderConfig config, final ApiCaller apiCaller, final boolean buildJiraIssuesApi) {
         this.config = config;
         this.apiCaller = apiCaller;
         this.buildJiraIssuesApi = buildJiraIssuesApi;
 
-        maxPerPage = config.getJiraBatchSize()*2;
-        batchSize = config.getJiraBatchSize();
+        batchSizeController = createBatchSizeController(config);
+        batchSizeMetrics = new BatchSizeMetrics(batchSizeController.getClass().getSimpleName());
+        passBatchSizeMetrics = new BatchSizeMetrics(batchSizeMetrics.getController());
+        partitionTargetSize = config.getJiraPartitionTargetSize();
+        keyset = config.getJiraKeysetPagination();
+
+        if (keyset && config.getJiraPrefetchDepth() > 1) {
+            log.warn("Each page depends on the one before it with keyset pagination, so pages won't be prefetched.");
+        }
+        prefetchDepth = keyset ? 1 : Math.max(config.getJiraPrefetchDepth(), 1);
+        if (prefetchDepth > 1) {
+            prefetchExecutor = Executors.newFixedThreadPool(prefetchDepth, new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("issues-prefetch-%d")
+                    .build());
+        } else {
+            prefetchExecutor = null;
+        }
+
+        keepRawPages = config.getArchiveDir() != null;
+        final Set<String> customFieldIds = IssueAPIParser.getCustomFieldIds(config.getCustomFields());
+        treeFetcher = url -> {
+            final JsonNode node = apiCaller.getJsonNode(url);
+            final JsonNode issues = node.get("issues");
+            final List<IssuePosition> positions = new ArrayList<>(issues.size());
+            for (final JsonNode issue : issues) {
+                final JsonNode updated = issue.path("fields").path("updated");
+                if (issue.hasNonNull("key") && updated.isTextual()) {
+                    positions.add(ImmutableIssuePosition.builder()
+                            .key(issue.get("key").textValue())
+                            .updated(JiraActionsUtil.parseDateTime(updated.textValue()))
+                            .build());
+                }
+            }
+            return new Page<>(issues, node.get("total").intValue(), node.path("maxResults").asInt(-1), issues.size(),
+                    -1, positions, keepRawPages ? objectMapper.writeValueAsBytes(node) : null);
+        };
+        streamingFetcher = url -> apiCaller.get(url, in -> {
+            final byte[] raw = keepRawPages ? ByteStreams.toByteArray(in) : null;
+            final CountingInputStream countingIn = new CountingInputStream(raw == null ? in : new ByteArrayInputStream(raw));
+            final SearchResult result = IssueAPIParser.parseSearchResult(countingIn, customFieldIds);
+            return new Page<>(result.getIssues(), result.getTotal(), result.getMaxResults().orElse(-1),
+                    result.getIssues().size(), countingIn.getCount(), result.getPositions(), raw);
+        });
+    }
 
-        urlBase = getIssuesUrlBase();
+    private static BatchSizeController createBatchSizeController(final JiraActionsIndexBuilderConfig config) {
+        if (config.getJiraBatchTargetLatencyMillis() <= 0) {
+            return new StepBatchSizeController(config.getJiraBatchSize());
+        }
+        final int maxBatchSize = config.getJiraBatchMax() > 0 ? config.getJiraBatchMax() : config.getJiraBatchSize() * 2;
+        return new AimdBatchSizeController(config.getJiraBatchSize(), maxBatchSize,
+                config.getJiraBatchTargetLatencyMillis(), config.getJiraBatchTargetBytes());
     }
 
     public JsonNode getIssuesNodeWithBackoff() throws InterruptedException {
+        return getPageWithBackoff(treeFetcher);
+    }
+
+    /**
+     * Like {@link #getIssuesNodeWithBackoff()}, but decodes the issues directly from the response stream.
+     */
+    public List<Issue> getIssuesWithBackoff() throws InterruptedException {
+        return getPageWithBackoff(streamingFetcher);
+    }
+
+    /**
+     * The whole search response behind the last page returned. Only kept when archiving.
+     */
+    @Nullable
+    public byte[] getLastRawPage() {
+        return lastRawPage;
+    }
+
+    /**
+     * @return what the batch size controller decided over every pass up to now, not counting the current one
+     */
+    public BatchSizeMetrics getBatchSizeMetrics() {
+        return batchSizeMetrics;
+    }
+
+    /**
+     * @return what the batch size controller decided during the current pass
+     */
+    public BatchSizeMetrics getPassBatchSizeMetrics() {
+        return passBatchSizeMetrics;
+    }
+
+    /**
+     * Logs what the batch size controller decided during this pass, adds it to the totals for the run, and starts
+     * counting the next pass from zero.
+     */
+    public void endPass() {
+        if (passBatchSizeMetrics.getRequests() > 0) {
+            log.info("{} batch sizes for pass {}: {}", buildJiraIssuesApi ? "Jiraissues" : "Jiraactions", pass,
+                    passBatchSizeMetrics);
+            batchSizeMetrics.add(passBatchSizeMetrics);
+            passBatchSizeMetrics = new BatchSizeMetrics(batchSizeMetrics.getController());
+        }
+        pass++;
+    }
+
+    /**
+     * Returns the page at {@link #start}. When prefetching, up to {@link #prefetchDepth} consecutive pages are
+     * requested ahead of time, but they are always handed out in order. If a page fails, it and everything
+     * requested after it is thrown away and re-requested from that page onward with the smaller batch size.
+     */
+    private <T> T getPageWithBackoff(final PageFetcher<T> fetcher) throws InterruptedException {
         int tries = 0;
         while (true) {
-            final long start = System.currentTimeMillis();
+            fillWindows(fetcher);
+            @SuppressWarnings("unchecked") // fillWindows guarantees every window came from this fetcher
+            final Window<T> window = (Window<T>) windows.removeFirst();
             try {
                 tries++;
-                final JsonNode node = getIssuesNode();
+                final Page<T> page = window.get();
+                final boolean limited = page.maxResults >= 0 && page.maxResults < window.maxResults;
+                if (limited) {
+                    log.warn("Asked for {} issues but JIRA only allows {} per page.", window.maxResults, page.maxResults);
+                    batchSizeController.limitTo(page.maxResults);
+                    passBatchSizeMetrics.recordLimited();
+                }
+                if (keyset) {
+                    setNextCursor(window, page);
+                } else {
+                    queries.get(window.queryIndex).total = page.total;
+                    if (limited) {
+                        // JIRA capped the page, so the pages requested after this one start in the wrong place
+                        queryIndex = window.queryIndex;
+                        start = window.startAt + page.maxResults;
+                        skipFinishedQueries();
+                        cancelWindows();
+                    } else {
+                        setNextPage(window);
+                    }
+                }
                 backoff = Math.max(backoff / 2, 10_000);
-                batchSize = Math.min(batchSize + 2, maxPerPage);
-                return node;
+                batchSizeController.onSuccess(window.maxResults, page.size, window.getElapsed(), page.bytes);
+                passBatchSizeMetrics.recordSuccess(window.maxResults, page.size, window.getElapsed(), page.bytes,
+                        batchSizeController.getBatchSize());
+                lastRawPage = page.raw;
+                return page.payload;
             } catch (final IOException e) {
-                final long end = System.currentTimeMillis();
                 log.error("On try {}/5, caught IOException getting {} issues, after {} milliseconds.",
-                        tries, batchSize, end - start);
+                        tries, window.maxResults, window.getElapsed());
+                cancelWindows();
+                batchSizeController.onFailure(window.maxResults, window.getElapsed());
+                passBatchSizeMetrics.recordFailure(window.maxResults, window.getElapsed(), batchSizeController.getBatchSize());
 
                 if(tries >= 5) {
                     log.error("Tried too many times to get issues and failed, aborting.", e);
                     throw new RuntimeException(e);
                 }
 
-                batchSize = Math.max(batchSize - (int)(batchSize*(float)0.9), 1);
                 log.warn("Caught exception when trying to get issues, backing off for " + backoff + " milliseconds" +
-                        " and trying again with batchSize = " + batchSize, e);
+                        " and trying again with batchSize = " + batchSizeController.getBatchSize(), e);
                 Thread.sleep(backoff);
                 backoff *= 2;
             }
         }
     }
 
-    private JsonNode getIssuesNode() throws IOException {
-        final JsonNode apiRes = apiCaller.getJsonNode(getIssuesURL());
-        setNextPage();
-        this.numTotal = apiRes.get("total").intValue();
-        return apiRes.get("issues");
+    /**
+     * Requests pages until there are {@link #prefetchDepth} of them in flight, or we've asked for everything.
+     * Without prefetching this just fetches the next page on the calling thread. Pages can span several queries,
+     * so when the crawl is partitioned the next slices are already being fetched while the current one finishes.
+     */
+    private void fillWindows(final PageFetcher<?> fetcher) {
+        if (!windows.isEmpty() && windows.peekFirst().fetcher != fetcher) {
+            cancelWindows();
+        }
+        if (windows.isEmpty()) {
+            addWindow(fetcher, queryIndex, start);
+        }
+        while (windows.size() < prefetchDepth) {
+            final Window<?> last = windows.peekLast();
+            int nextQuery = last.queryIndex;
+            int next = last.getEnd();
+            while (nextQuery < queries.size() && next >= queries.get(nextQuery).total) {
+                nextQuery++;
+                next = 0;
+            }
+            if (nextQuery >= queries.size()) {
+                break;
+            }
+            addWindow(fetcher, nextQuery, next);
+        }
+    }
+
+    private void addWindow(final PageFetcher<?> fetcher, final int windowQuery, final int startAt) {
+        final Window<?> window = new Window<>(fetcher, windowQuery, startAt, batchSizeController.getBatchSize());
+        windows.addLast(window);
+        if (prefetchExecutor == null) {
+            window.task.run();
+        } else {
+            prefetchExecutor.execute(window.task);
+        }
+    }
+
+    private void cancelWindows() {
+        for (final Window<?> window : windows) {
+            window.task.cancel(true);
+        }
+        windows.clear();
     }
 
     public int setNumTotal() throws IOException {
-        final JsonNode apiRes = apiCaller.getJsonNode(getBasicInfoURL());
+        cancelWindows();
+        clearCursor();
+        queries.clear();
+
+        final String lowerBound = getLowerBound();
+        final int total = getTotal(lowerBound, null);
+        if (partitionTargetSize > 0 && total > partitionTargetSize) {
+            final DateTime from = JIRA_TIME_FORMAT.withZone(JIRA_TIME_ZONE).parseDateTime(lowerBound);
+            final DateTime now = DateTime.now(JIRA_TIME_ZONE).withSecondOfMinute(0).withMillisOfSecond(0).plusMinutes(1);
+            partition(from, now, true, total);
+            log.info("Split {} issues into {} queries of about {} issues.", total, queries.size(), partitionTargetSize);
+        } else {
+            queries.add(new Query(lowerBound, null, total));
+        }
+
+        queryIndex = 0;
+        start = 0;
+        skipFinishedQueries();
+        return total;
+    }
+
+    /**
+     * Splits updatedDate in [from, to) into queries that each match at most {@link #partitionTargetSize} issues,
+     * using count-only requests to find the sizes, and adds them newest first so the crawl keeps the same order as
+     * a single query. If {@code open}, the newest query has no upper bound, so anything updated while we crawl lands
+     * in it and is picked up when we start over. A single minute is never split, however many issues it has.
+     */
+    private void partition(final DateTime from, final DateTime to, final boolean open, final int total) throws IOException {
+        final int minutes = Minutes.minutesBetween(from, to).getMinutes();
+        if (total <= partitionTargetSize || minutes <= 1) {
+            final String upperBound = open ? null : JIRA_TIME_FORMAT.print(to);
+            queries.add(new Query(JIRA_TIME_FORMAT.print(from), upperBound, total));
+            return;
+        }
+
+        final DateTime middle = from.plusMinutes(minutes / 2);
+        final int older = getTotal(JIRA_TIME_FORMAT.print(from), JIRA_TIME_FORMAT.print(middle));
+        partition(middle, to, open, Math.max(total - older, 0));
+        partition(from, middle, false, older);
+    }
+
+    private int getTotal(final String lowerBound, @Nullable final String upperBound) throws IOException {
+        final JsonNode apiRes = apiCaller.getJsonNode(getBasicInfoURL(getJQL(lowerBound, upperBound, Collections.emptyList())));
         final JsonNode totalNode = apiRes.path("total");
-        final int total = totalNode.intValue();
-        this.numTotal = total;
-        return numTotal;
+        return totalNode.intValue();
     }
 
     public boolean currentPageExist() {
-        return start < numTotal;
+        return queryIndex < queries.size();
+    }
+
+    private void setNextPage(final Window<?> window) {
+        queryIndex = window.queryIndex;
+        start = window.getEnd();
+        skipFinishedQueries();
+    }
+
+    /**
+     * With keyset pagination, the next page is everything up to and including the minute of the last issue we've
+     * seen, minus the issues we've already seen from that minute. How far into the query we are doesn't matter, and
+     * issues updated in the meantime move out of the way instead of shifting everything after them.
+     */
+    private void setNextCursor(final Window<?> window, final Page<?> page) {
+        if (page.size > 0 && page.positions.isEmpty()) {
+            throw new IllegalStateException("Keyset pagination needs the updated field of every issue.");
+        }
+        for (final IssuePosition position : page.positions) {
+            final DateTime minute = position.getUpdated().toDateTime(JIRA_TIME_ZONE)
+                    .withSecondOfMinute(0)
+                    .withMillisOfSecond(0);
+            if (!minute.equals(cursorMinute)) {
+                cursorMinute = minute;
+                boundaryKeys.clear();
+            }
+            boundaryKeys.add(position.getKey());
+        }
+
+        // JIRA's total only counts what's left under the cursor, so turn it back into one for the whole query
+        final Query query = queries.get(window.queryIndex);
+        query.total = page.size == 0 ? window.startAt : window.startAt + page.total - window.requestStartAt;
+        queryIndex = window.queryIndex;
+        start = window.startAt + page.size;
+        skipFinishedQueries();
+    }
+
+    private void clearCursor() {
+        cursorMinute = null;
+        boundaryKeys.clear();
     }
 
-    private void setNextPage() {
-        start += batchSize;
+    private void skipFinishedQueries() {
+        while (queryIndex < queries.size() && start >= queries.get(queryIndex).total) {
+            queryIndex++;
+            start = 0;
+            clearCursor();
+        }
     }
 
     public void reset() {
+        endPass();
+        cancelWindows();
+        clearCursor();
+        queryIndex = 0;
         start = 0;
+        if (!queries.isEmpty()) {
+            // The newest query is open-ended, so it may have picked up issues even if it was empty last time
+            final Query newest = queries.get(0);
+            newest.total = Math.max(newest.total, 1);
+        }
+    }
+
+    /**
+     * Cancels any pages still in flight and stops the prefetch threads. Nothing can be fetched after this.
+     */
+    public void close() {
+        cancelWindows();
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+        }
     }
 
-    private String getIssuesUrlBase() throws UnsupportedEncodingException {
+    private String getIssuesUrlBase(final String jql) {
         return config.getJiraBaseURL() + API_PATH + "?" +
-                getJQLParam() +
+                getJQLParam(jql) +
                 "&" +
                 getFieldsParam() +
                 "&" +
                 getExpandParam();
     }
 
-    private String getIssuesURL() {
-        final String url = urlBase
-                + "&" + getMaxResults()
-                + "&" + getStartAtParam();
+    /**
+     * @param position how many issues of the query come before this page, for logging progress
+     */
+    private String getIssuesURL(final int windowQuery, final int position, final int startAt, final int maxResults) {
+        final Query query = queries.get(windowQuery);
+        final String jql;
+        if (keyset && cursorMinute != null) {
+            jql = getJQL(query.lowerBound, JIRA_TIME_FORMAT.print(cursorMinute.plusMinutes(1)),
+                    Iterables.limit(boundaryKeys, MAX_EXCLUDED_KEYS));
+        } else {
+            jql = getJQL(query.lowerBound, query.upperBound, Collections.emptyList());
+        }
+        final String url = getIssuesUrlBase(jql)
+                + "&" + getMaxResults(maxResults)
+                + "&" + getStartAtParam(startAt);
 
         if(log.isDebugEnabled()) {
             log.debug("Trying URL: {}", url);
         }
-        log.info("{}% complete, {}/{}", (float)start*100/numTotal, start, numTotal);
+        int done = position;
+        int numTotal = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            if (i < windowQuery) {
+                done += queries.get(i).total;
+            }
+            numTotal += queries.get(i).total;
+        }
+        log.info("{}% complete, {}/{}", (float)done*100/numTotal, done, numTotal);
 
         return url;
     }
 
-    private String getBasicInfoURL() throws UnsupportedEncodingException {
+    private String getBasicInfoURL(final String jql) {
         final String url = config.getJiraBaseURL() + API_PATH + "?" +
-                getJQLParam() +
+                getJQLParam(jql) +
                 "&maxResults=0";
         return url;
     }
@@ -148,7 +484,23 @@ public class IssuesAPICaller {
         return JIRA_TIME_FORMAT.print(adjusted);
     }
 
-    private String getJQLParam() throws UnsupportedEncodingException {
+    private String getLowerBound() {
+        return buildJiraIssuesApi ? getDateStringInJiraTime(JiraActionsUtil.parseDateTime(config.getStartDate()).minusMonths(config.getSnapshotLookbackMonths()).toString()) : getDateStringInJiraTime(config.getStartDate());
+    }
+
+    private String getJQLParam(final String jql) {
+        try {
+            return "jql=" + URLEncoder.encode(jql, "UTF-8");
+        } catch (final UnsupportedEncodingException e) {
+            throw Throwables.propagate(e); // UTF-8 is always supported
+        }
+    }
+
+    /**
+     * @param upperBound exclusive limit on updatedDate, or null for everything updated since {@code lowerBound}
+     * @param excludedKeys issues to leave out
+     */
+    private String getJQL(final String lowerBound, @Nullable final String upperBound, final Iterable<String> excludedKeys) {
         final StringBuilder query = new StringBuilder();
 
         /* We want to get everything that existed between our start and end dates, and we'll filter out individual
@@ -157,10 +509,15 @@ public class IssuesAPICaller {
          * that were created after we started).
          */
 
-        final String start = buildJiraIssuesApi ? getDateStringInJiraTime(JiraActionsUtil.parseDateTime(config.getStartDate()).minusMonths(config.getSnapshotLookbackMonths()).toString()) : getDateStringInJiraTime(config.getStartDate());
         final String end = getDateStringInJiraTime(config.getEndDate());
-        query.append("updatedDate>=\"").append(start)
-                .append("\" AND createdDate<\"").append(end).append("\"");
+        query.append("updatedDate>=\"").append(lowerBound).append("\"");
+        if (upperBound != null) {
+            query.append(" AND updatedDate<\"").append(upperBound).append("\"");
+        }
+        query.append(" AND createdDate<\"").append(end).append("\"");
+        if (excludedKeys.iterator().hasNext()) {
+            query.append(" AND issuekey NOT IN (").append(String.join(",", excludedKeys)).append(")");
+        }
 
         if(!StringUtils.isEmpty(config.getJiraProject())) {
             query.append(" AND project IN (").append(config.getJiraProject()).append(")");
@@ -172,7 +529,7 @@ public class IssuesAPICaller {
 
         query.append(" ORDER BY updatedDate DESC, issuekey DESC"); // seems like updatedDate isn't quite repeatable
 
-        return "jql=" + URLEncoder.encode(query.toString(), "UTF-8");
+        return query.toString();
     }
 
     private String getFieldsParam() {
@@ -189,11 +546,97 @@ public class IssuesAPICaller {
         return String.format("expand=%s", config.getJiraExpand());
     }
 
-    private String getStartAtParam() {
-        return String.format("startAt=%d", start);
+    private String getStartAtParam(final int startAt) {
+        return String.format("startAt=%d", startAt);
+    }
+
+    private String getMaxResults(final int maxResults) {
+        return String.format("maxResults=%d", maxResults);
+    }
+
+    private interface PageFetcher<T> {
+        Page<T> fetch(String url) throws IOException;
+    }
+
+    private static class Query {
+        private final String lowerBound;
+        @Nullable
+        private final String upperBound;
+        private int total; // As of the last response
+
+        private Query(final String lowerBound, @Nullable final String upperBound, final int total) {
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.total = total;
+        }
+    }
+
+    private static class Page<T> {
+        private final T payload;
+        private final int total;
+        private final int maxResults; // As applied by JIRA, -1 if it didn't say
+        private final int size;
+        private final long bytes; // -1 if not measured
+        private final List<IssuePosition> positions;
+        @Nullable
+        private final byte[] raw; // The whole response, only kept when archiving
+
+        private Page(final T payload, final int total, final int maxResults, final int size, final long bytes,
+                     final List<IssuePosition> positions, @Nullable final byte[] raw) {
+            this.payload = payload;
+            this.total = total;
+            this.maxResults = maxResults;
+            this.size = size;
+            this.bytes = bytes;
+            this.positions = positions;
+            this.raw = raw;
+        }
     }
 
-    private String getMaxResults() {
-        return String.format("maxResults=%d", batchSize);
+    /**
+     * A single request for issues [startAt, startAt + maxResults) of one query.
+     */
+    private class Window<T> {
+        private final PageFetcher<T> fetcher;
+        private final int queryIndex;
+        private final int startAt; // Issues of the query before this page
+        private final int requestStartAt; // startAt as sent to JIRA, which is relative to the cursor with keyset pagination
+        private final int maxResults;
+        private final FutureTask<Page<T>> task;
+        private volatile long elapsed = 0;
+
+        private Window(final PageFetcher<T> fetcher, final int queryIndex, final int startAt, final int maxResults) {
+            this.fetcher = fetcher;
+            this.queryIndex = queryIndex;
+            this.startAt = startAt;
+            this.maxResults = maxResults;
+            this.requestStartAt = keyset ? boundaryKeys.size() - Math.min(boundaryKeys.size(), MAX_EXCLUDED_KEYS) : startAt;
+            final String url = getIssuesURL(queryIndex, startAt, requestStartAt, maxResults);
+            this.task = new FutureTask<>(() -> {
+                final long requestStart = System.currentTimeMillis();
+                try {
+                    return fetcher.fetch(url);
+                } finally {
+                    elapsed = System.currentTimeMillis() - requestStart;
+                }
+            });
+        }
+
+        private int getEnd() {
+            return startAt + maxResults;
+        }
+
+        private long getElapsed() {
+            return elapsed;
+        }
+
+        private Page<T> get() throws IOException, InterruptedException {
+            try {
+                return task.get();
+            } catch (final ExecutionException e) {
+                Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+                throw Throwables.propagate(e.getCause());
+            }
+        }
     }
 }
@@ -0,0 +1,199 @@
+package com.indeed.jiraactions.api;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.utils.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket shared by every request to JIRA, so all of our threads together stay under one rate. When JIRA
+ * throttles us, every thread waits out the pause it asks for, the rate is halved, and it then creeps back up with
+ * each successful request. JIRA's own rate limit headers, when it sends them, lower the ceiling we recover to. Without
+ * a configured rate, the rate we were going when JIRA first throttled us becomes the ceiling.
+ */
+public class JiraRateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(JiraRateLimiter.class);
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double RECOVERY_FRACTION = 0.02;
+    private static final double MIN_RATE_FRACTION = 0.05;
+    private static final long DEFAULT_PAUSE_MILLIS = 1_000;
+    private static final long MAX_PAUSE_MILLIS = 5 * 60_000;
+    private static final long OBSERVATION_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final double MIN_OBSERVED_RATE = 1;
+
+    private final Ticker ticker;
+    private double maxRate;
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+    // Requests made in the last two windows, to tell how fast we were going when there's no ceiling
+    private long windowStart;
+    private int windowRequests = 0;
+    private long prevWindowStart;
+    private int prevWindowRequests = 0;
+
+    /**
+     * @param requestsPerSecond the most requests per second to make, or 0 to only slow down when JIRA asks us to.
+     */
+    public JiraRateLimiter(final double requestsPerSecond) {
+        this(requestsPerSecond, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    JiraRateLimiter(final double requestsPerSecond, final Ticker ticker) {
+        this.ticker = ticker;
+        this.maxRate = requestsPerSecond > 0 ? requestsPerSecond : Double.POSITIVE_INFINITY;
+        this.rate = maxRate;
+        this.tokens = getBurst();
+        this.lastRefill = ticker.read();
+        this.pausedUntil = lastRefill;
+        this.windowStart = lastRefill;
+        this.prevWindowStart = lastRefill;
+    }
+
+    /**
+     * Blocks until we're allowed to make another request.
+     */
+    public void acquire() throws InterruptedException {
+        final long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes a token and returns how long to wait before using it.
+     */
+    @VisibleForTesting
+    synchronized long reserve() {
+        final long now = ticker.read();
+        refill(now);
+        recordRequest(now);
+        long waitNanos = Math.max(0, pausedUntil - now);
+        if (!Double.isInfinite(rate)) {
+            tokens -= 1;
+            if (tokens < 0) {
+                waitNanos += (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Every response, throttled or not, might carry JIRA's rate limit headers.
+     */
+    public synchronized void onResponse(final HttpResponse response) {
+        final double fillRate = getDoubleHeader(response, "X-RateLimit-FillRate");
+        final double interval = getDoubleHeader(response, "X-RateLimit-Interval-Seconds");
+        if (fillRate > 0 && interval > 0 && fillRate / interval < maxRate) {
+            maxRate = fillRate / interval;
+            rate = Math.min(rate, maxRate);
+            tokens = Math.min(tokens, getBurst());
+            log.info("JIRA allows {} requests per second, limiting to that.", maxRate);
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (rate < maxRate) {
+            rate = Math.min(maxRate, rate + maxRate * RECOVERY_FRACTION);
+        }
+    }
+
+    /**
+     * Pauses everyone until JIRA says we can try again and slows down for what comes after.
+     * @return how long everyone is paused, in milliseconds
+     */
+    public synchronized long onThrottled(final HttpResponse response, final int attempt) {
+        final long now = ticker.read();
+        refill(now);
+
+        final long pauseMillis = Math.min(MAX_PAUSE_MILLIS, getPauseMillis(response, attempt));
+        pausedUntil = Math.max(pausedUntil, now + TimeUnit.MILLISECONDS.toNanos(pauseMillis));
+        if (Double.isInfinite(maxRate)) {
+            // Otherwise every thread would come back at full speed at once when the pause is over
+            maxRate = getObservedRate(now);
+            rate = maxRate;
+            log.info("Throttled by JIRA at about {} requests per second, limiting to that.", maxRate);
+        }
+        rate = Math.max(maxRate * MIN_RATE_FRACTION, rate * DECREASE_FACTOR);
+        tokens = Math.min(tokens, 0);
+        return pauseMillis;
+    }
+
+    @VisibleForTesting
+    synchronized double getRate() {
+        return rate;
+    }
+
+    private void refill(final long now) {
+        if (!Double.isInfinite(rate)) {
+            final double elapsedSeconds = (double) (now - lastRefill) / TimeUnit.SECONDS.toNanos(1);
+            tokens = Math.min(getBurst(), tokens + elapsedSeconds * rate);
+        }
+        lastRefill = now;
+    }
+
+    private void recordRequest(final long now) {
+        if (now - windowStart >= OBSERVATION_WINDOW_NANOS) {
+            prevWindowStart = windowStart;
+            prevWindowRequests = windowRequests;
+            windowStart = now;
+            windowRequests = 0;
+        }
+        windowRequests++;
+    }
+
+    /**
+     * @return about how many requests per second we've been making lately
+     */
+    private double getObservedRate(final long now) {
+        final double elapsedSeconds = Math.max(1, (double) (now - prevWindowStart) / TimeUnit.SECONDS.toNanos(1));
+        return Math.max(MIN_OBSERVED_RATE, (prevWindowRequests + windowRequests) / elapsedSeconds);
+    }
+
+    private double getBurst() {
+        return Math.max(1, rate);
+    }
+
+    private long getPauseMillis(final HttpResponse response, final int attempt) {
+        final Header retryAfter = response.getFirstHeader("Retry-After");
+        if (retryAfter != null && StringUtils.isNotBlank(retryAfter.getValue())) {
+            final String value = retryAfter.getValue().trim();
+            if (StringUtils.isNumeric(value)) {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+            }
+            final Date date = DateUtils.parseDate(value);
+            if (date != null) {
+                return Math.max(0, date.getTime() - System.currentTimeMillis());
+            }
+        }
+
+        final double interval = getDoubleHeader(response, "X-RateLimit-Interval-Seconds");
+        if (interval > 0 && getDoubleHeader(response, "X-RateLimit-Remaining") == 0) {
+            return (long) (interval * 1000);
+        }
+        return DEFAULT_PAUSE_MILLIS << Math.min(attempt, 8);
+    }
+
+    private static double getDoubleHeader(final HttpResponse response, final String name) {
+        final Header header = response.getFirstHeader(name);
+        return header == null ? -1 : parseDouble(header.getValue());
+    }
+
+    private static double parseDouble(@Nullable final String value) {
+        try {
+            return value == null ? -1 : Double.parseDouble(value.trim());
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.indeed.jiraactions.api;
+
+import com.indeed.jiraactions.api.response.issue.Issue;
+import org.immutables.value.Value;
+
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * One page of the /rest/api/2/search response, decoded straight from the response stream.
+ */
+@Value.Immutable
+public interface SearchResult {
+    int getTotal();
+    /** The page size JIRA actually applied, which can be lower than what was asked for. */
+    OptionalInt getMaxResults();
+    List<Issue> getIssues();
+    /** Positions of every issue in the page, including any left out of {@link #getIssues()}. */
+    List<IssuePosition> getPositions();
+}
@@ -0,0 +1,148 @@
+package com.indeed.jiraactions.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.indeed.jiraactions.api.response.issue.ImmutableUser;
+import com.indeed.jiraactions.api.response.issue.User;
+import com.indeed.util.core.nullsafety.ReturnValuesAreNonnullByDefault;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Users (with their groups) that we've looked up before, kept in a gzipped JSON file between runs. Entries older
+ * than the TTL are still usable, but are reported as stale so they can be refreshed.
+ */
+@ParametersAreNonnullByDefault
+@ReturnValuesAreNonnullByDefault
+public class UserCache {
+    private static final Logger log = LoggerFactory.getLogger(UserCache.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final File file;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private UserCache(final File file, final long ttlMillis) {
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Reads the cache from {@code file}. A missing or unreadable file just means starting from an empty cache.
+     */
+    public static UserCache load(final File file, final long ttlHours) {
+        final UserCache cache = new UserCache(file, TimeUnit.HOURS.toMillis(ttlHours));
+        if (!file.exists()) {
+            log.info("No user cache at {}, starting with an empty one.", file);
+            return cache;
+        }
+
+        try (final InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            final List<Entry> entries = objectMapper.readValue(in, new TypeReference<List<Entry>>() { });
+            for (final Entry entry : entries) {
+                if (entry.key != null) {
+                    cache.entries.put(entry.key, entry);
+                }
+            }
+            log.info("Loaded {} users from {}.", cache.entries.size(), file);
+        } catch (final IOException e) {
+            log.warn("Unable to read the user cache at " + file + ", starting with an empty one.", e);
+        }
+        return cache;
+    }
+
+    @Nullable
+    public User get(final String key) {
+        final Entry entry = entries.get(key);
+        return entry == null ? null : entry.toUser();
+    }
+
+    public boolean isStale(final String key) {
+        final Entry entry = entries.get(key);
+        return entry == null || System.currentTimeMillis() - entry.fetched > ttlMillis;
+    }
+
+    public void put(final User user) {
+        entries.put(user.getKey(), Entry.of(user, System.currentTimeMillis()));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the cache to a temporary file next to the real one and then moves it into place, so a failed run never
+     * leaves a truncated cache behind.
+     */
+    public void save() throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+
+        final File tmp = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            try (final OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                objectMapper.writeValue(out, new ArrayList<>(entries.values()));
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+        log.info("Saved {} users to {}.", entries.size(), file);
+    }
+
+    /**
+     * What's actually written to disk. {@link User}'s own deserializer reads groups the way JIRA returns them, so
+     * the cache has its own flat representation.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class Entry {
+        public String key;
+        public String name;
+        public String displayName;
+        public List<String> groups = Collections.emptyList();
+        public long fetched;
+
+        static Entry of(final User user, final long fetched) {
+            final Entry entry = new Entry();
+            entry.key = user.getKey();
+            entry.name = user.getName();
+            entry.displayName = user.getDisplayName();
+            entry.groups = user.getGroups();
+            entry.fetched = fetched;
+            return entry;
+        }
+
+        User toUser() {
+            return ImmutableUser.builder()
+                    .key(key)
+                    .name(name == null ? key : name)
+                    .displayName(displayName == null ? "" : displayName)
+                    .groups(groups == null ? Collections.emptyList() : groups)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.indeed.jiraactions.api.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Additive-increase/multiplicative-decrease on response latency. Keeps a running estimate of how long each issue
+ * takes to fetch (and how big it is) and only grows the batch while the next size is expected to come back within
+ * {@code targetLatencyMillis}. A response slower than the target shrinks the batch in proportion to how far over it
+ * was, so the batch comes down before requests start timing out rather than after.
+ */
+public class AimdBatchSizeController implements BatchSizeController {
+    private static final Logger log = LoggerFactory.getLogger(AimdBatchSizeController.class);
+
+    private static final int ADDITIVE_STEP = 2;
+    private static final double SLOW_DECREASE = 0.5; // Never shrink by more than half for a slow response
+    private static final double FAILURE_DECREASE = 0.25;
+    private static final double SMOOTHING = 0.3;
+
+    private final long targetLatencyMillis;
+    private final long targetBytes;
+    private int maxBatchSize;
+    private int batchSize;
+
+    private double millisPerIssue = -1;
+    private double bytesPerIssue = -1;
+
+    /**
+     * @param targetBytes largest response we want to receive, or 0 for no limit
+     */
+    public AimdBatchSizeController(final int initialBatchSize, final int maxBatchSize,
+                                   final long targetLatencyMillis, final long targetBytes) {
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+        this.batchSize = Math.min(Math.max(initialBatchSize, 1), this.maxBatchSize);
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.targetBytes = targetBytes;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void onSuccess(final int requested, final int received, final long elapsedMillis, final long bytes) {
+        if (received > 0) {
+            millisPerIssue = smooth(millisPerIssue, (double) elapsedMillis / received);
+            if (bytes >= 0) {
+                bytesPerIssue = smooth(bytesPerIssue, (double) bytes / received);
+            }
+        }
+
+        final int previous = batchSize;
+        if (elapsedMillis > targetLatencyMillis) {
+            final double factor = Math.max(SLOW_DECREASE, (double) targetLatencyMillis / elapsedMillis);
+            batchSize = Math.max((int) (batchSize * factor), 1);
+        } else if (millisPerIssue < 0 || millisPerIssue * (batchSize + ADDITIVE_STEP) <= targetLatencyMillis) {
+            batchSize = Math.min(batchSize + ADDITIVE_STEP, maxBatchSize);
+        }
+
+        if (targetBytes > 0 && bytesPerIssue > 0) {
+            batchSize = Math.max(Math.min(batchSize, (int) (targetBytes / bytesPerIssue)), 1);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("{} issues ({} bytes) in {} ms, {} ms/issue. Batch size {} -> {}",
+                    received, bytes, elapsedMillis, String.format("%.1f", millisPerIssue), previous, batchSize);
+        }
+    }
+
+    @Override
+    public void onFailure(final int requested, final long elapsedMillis) {
+        batchSize = Math.max((int) (batchSize * FAILURE_DECREASE), 1);
+    }
+
+    @Override
+    public void limitTo(final int maxResults) {
+        maxBatchSize = Math.max(Math.min(maxBatchSize, maxResults), 1);
+        batchSize = Math.min(batchSize, maxBatchSize);
+    }
+
+    private static double smooth(final double previous, final double sample) {
+        return previous < 0 ? sample : previous + SMOOTHING * (sample - previous);
+    }
+}
@@ -0,0 +1,23 @@
+package com.indeed.jiraactions.api.batch;
+
+/**
+ * Decides how many issues to ask JIRA for in the next search request, based on how the previous ones went.
+ */
+public interface BatchSizeController {
+    int getBatchSize();
+
+    /**
+     * @param requested number of issues asked for
+     * @param received number of issues that came back, which is less than requested on the last page
+     * @param elapsedMillis time taken by the request, including reading the response
+     * @param bytes size of the response body, or -1 if it wasn't measured
+     */
+    void onSuccess(int requested, int received, long elapsedMillis, long bytes);
+
+    void onFailure(int requested, long elapsedMillis);
+
+    /**
+     * Called when JIRA applied a lower maxResults than we asked for, so there's no point asking for more.
+     */
+    void limitTo(int maxResults);
+}
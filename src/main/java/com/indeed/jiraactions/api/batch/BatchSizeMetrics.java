@@ -0,0 +1,139 @@
+package com.indeed.jiraactions.api.batch;
+
+/**
+ * Running totals of what a {@link BatchSizeController} decided, so its behavior can be tuned for a JIRA instance.
+ */
+public class BatchSizeMetrics {
+    private final String controller;
+    private int requests = 0;
+    private int failures = 0;
+    private int increases = 0;
+    private int decreases = 0;
+    private int limited = 0;
+    private int minBatchSize = Integer.MAX_VALUE;
+    private int maxBatchSize = 0;
+    private long issues = 0;
+    private long bytes = 0;
+    private long millis = 0;
+
+    /**
+     * @param controller which kind of {@link BatchSizeController} made the decisions, to tell runs apart by it
+     */
+    public BatchSizeMetrics(final String controller) {
+        this.controller = controller;
+    }
+
+    public void recordSuccess(final int requested, final int received, final long elapsedMillis, final long bytes,
+                              final int nextBatchSize) {
+        requests++;
+        issues += received;
+        millis += elapsedMillis;
+        if (bytes > 0) {
+            this.bytes += bytes;
+        }
+        recordBatchSize(requested, nextBatchSize);
+    }
+
+    public void recordFailure(final int requested, final long elapsedMillis, final int nextBatchSize) {
+        requests++;
+        failures++;
+        millis += elapsedMillis;
+        recordBatchSize(requested, nextBatchSize);
+    }
+
+    public void recordLimited() {
+        limited++;
+    }
+
+    /**
+     * Adds everything {@code other} recorded to these totals, e.g. to roll a pass up into the whole run.
+     */
+    public void add(final BatchSizeMetrics other) {
+        requests += other.requests;
+        failures += other.failures;
+        increases += other.increases;
+        decreases += other.decreases;
+        limited += other.limited;
+        minBatchSize = Math.min(minBatchSize, other.minBatchSize);
+        maxBatchSize = Math.max(maxBatchSize, other.maxBatchSize);
+        issues += other.issues;
+        bytes += other.bytes;
+        millis += other.millis;
+    }
+
+    private void recordBatchSize(final int requested, final int next) {
+        minBatchSize = Math.min(minBatchSize, requested);
+        maxBatchSize = Math.max(maxBatchSize, requested);
+        if (next > requested) {
+            increases++;
+        } else if (next < requested) {
+            decreases++;
+        }
+    }
+
+    public String getController() {
+        return controller;
+    }
+
+    public int getRequests() {
+        return requests;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public int getIncreases() {
+        return increases;
+    }
+
+    public int getDecreases() {
+        return decreases;
+    }
+
+    /**
+     * @return how many times JIRA returned fewer issues per page than we asked for
+     */
+    public int getLimited() {
+        return limited;
+    }
+
+    /**
+     * @return the smallest batch size requested, or 0 if nothing was
+     */
+    public int getMinBatchSize() {
+        return requests == 0 ? 0 : minBatchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getIssues() {
+        return issues;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public double getMillisPerIssue() {
+        return issues == 0 ? 0 : (double) millis / issues;
+    }
+
+    public long getBytesPerIssue() {
+        return issues == 0 ? 0 : bytes / issues;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{controller: %s, requests: %d, failures: %d, increases: %d, decreases: %d, " +
+                        "limitedByJira: %d, minBatchSize: %d, maxBatchSize: %d, msPerIssue: %.1f, bytesPerIssue: %d}",
+                controller, requests, failures, increases, decreases, limited, getMinBatchSize(), maxBatchSize,
+                getMillisPerIssue(), getBytesPerIssue());
+    }
+}
@@ -0,0 +1,36 @@
+package com.indeed.jiraactions.api.batch;
+
+/**
+ * Grows the batch by two issues after every successful request, up to twice the configured batch size, and cuts it
+ * by 90% after a failure.
+ */
+public class StepBatchSizeController implements BatchSizeController {
+    private int maxBatchSize;
+    private int batchSize;
+
+    public StepBatchSizeController(final int initialBatchSize) {
+        this.batchSize = initialBatchSize;
+        this.maxBatchSize = initialBatchSize * 2;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void onSuccess(final int requested, final int received, final long elapsedMillis, final long bytes) {
+        batchSize = Math.min(batchSize + 2, maxBatchSize);
+    }
+
+    @Override
+    public void onFailure(final int requested, final long elapsedMillis) {
+        batchSize = Math.max(batchSize - (int)(batchSize*(float)0.9), 1);
+    }
+
+    @Override
+    public void limitTo(final int maxResults) {
+        maxBatchSize = Math.max(Math.min(maxBatchSize, maxResults), 1);
+        batchSize = Math.min(batchSize, maxBatchSize);
+    }
+}
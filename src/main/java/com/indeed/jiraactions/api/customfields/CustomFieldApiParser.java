@@ -2,30 +2,31 @@ package com.indeed.jiraactions.api.customfields;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeType;
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.indeed.jiraactions.Action;
 import com.indeed.jiraactions.UserLookupService;
-import com.indeed.jiraactions.api.customfields.CustomFieldDefinition.SplitRule;
 import com.indeed.jiraactions.api.response.issue.Issue;
 import com.indeed.jiraactions.api.response.issue.User;
 import com.indeed.jiraactions.api.response.issue.changelog.histories.History;
 import com.indeed.jiraactions.api.response.issue.changelog.histories.Item;
 import com.indeed.util.core.nullsafety.ReturnValuesAreNonnullByDefault;
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,6 +35,7 @@ import java.util.regex.Pattern;
 public class CustomFieldApiParser {
     private static final Logger log = LoggerFactory.getLogger(CustomFieldApiParser.class);
     private static final Pattern MULTIVALUE_PATTERN = Pattern.compile("Parent values: (.*?)\\(\\d+\\)(Level 1 values: (.*?)\\(\\d+\\))?");
+    private static final Pattern DEFAULT_SPLIT_PATTERN = Pattern.compile(", ?");
 
     private final UserLookupService userLookupService;
     private final Set<CustomFieldDefinition> failedCustomFields;
@@ -41,12 +43,13 @@ public class CustomFieldApiParser {
 
     public CustomFieldApiParser(final UserLookupService userLookupService) {
         this.userLookupService = userLookupService;
-        this.failedCustomFields = new HashSet<>();
-        this.failedCustomHistoryFields = new HashSet<>();
+        // Custom fields can be parsed for several issues at once
+        this.failedCustomFields = ConcurrentHashMap.newKeySet();
+        this.failedCustomHistoryFields = ConcurrentHashMap.newKeySet();
     }
 
     public CustomFieldValue parseInitialValue(final CustomFieldDefinition definition, final Issue issue) {
-        final Item item = issue.initialItem(true, getItemLabels(definition));
+        final Item item = issue.initialItem(true, definition.getItemLabels());
         if(item != null) {
             return customFieldValueFromChangelog(definition, item.from, item.fromString);
         } else {
@@ -69,7 +72,7 @@ public class CustomFieldApiParser {
 
     public CustomFieldValue parseNonInitialValue(final CustomFieldDefinition definition, final Action prevAction,
                                                  final History history) {
-        final Item item = history.getItem(true, getItemLabels(definition));
+        final Item item = history.getItem(true, definition.getItemLabels());
         if(item != null) {
             final CustomFieldValue value = customFieldValueFromChangelog(definition, item.to, item.toString);
             if (StringUtils.isNotEmpty(item.toString) && value.isEmpty()) {
@@ -103,27 +106,20 @@ public class CustomFieldApiParser {
     ) {
         final boolean valueStringIsEmpty = StringUtils.isEmpty(valueString);
         final String splitValueString;
-        final boolean shouldSplit =
-                definition.getSplit() != SplitRule.NONE
-                && StringUtils.isNotEmpty(definition.getSeparator())
-                && !valueStringIsEmpty;
-        final String splitPattern;
+        final boolean shouldSplit = definition.isSplit() && !valueStringIsEmpty;
+        final Pattern splitPattern;
         if (shouldSplit) {
-            splitPattern = definition.getSplit().getSplitPattern();
-            splitValueString = valueString.replaceAll(
-                    splitPattern,
-                    definition.getSeparator()
-            );
+            splitPattern = definition.getSplit().getPattern();
+            splitValueString = definition.split(valueString);
         } else {
-            splitPattern = "";
+            splitPattern = DEFAULT_SPLIT_PATTERN;
             splitValueString = valueString;
         }
         if(CustomFieldDefinition.MultiValueFieldConfiguration.NONE.equals(definition.getMultiValueFieldConfiguration())) {
             if (StringUtils.isNotEmpty(definition.getSeparator()) && !valueStringIsEmpty) {
-                final String split = StringUtils.isEmpty(splitPattern) ? ", ?" : splitPattern;
                 return ImmutableCustomFieldValue.builder()
                         .definition(definition)
-                        .value(splitValueString.replaceAll(split, definition.getSeparator()))
+                        .value(splitPattern.matcher(splitValueString).replaceAll(definition.getSeparator()))
                         .build();
             } else {
                 return ImmutableCustomFieldValue.builder()
@@ -132,18 +128,12 @@ public class CustomFieldApiParser {
                         .build();
             }
         } else if(CustomFieldDefinition.MultiValueFieldConfiguration.USERNAME.equals(definition.getMultiValueFieldConfiguration())) {
-            final String usernames;
-            if (shouldSplit) {
-                final ImmutableList.Builder<String> usernameList = ImmutableList.builder();
-                for (final String userKey : Splitter.on(definition.getSeparator()).split(splitValueString)) {
-                    final User user = userLookupService.getUser(userKey);
-                    usernameList.add(user.getName());
-                }
-                usernames = Joiner.on(definition.getSeparator()).join(usernameList.build());
-            } else {
-                final User user = userLookupService.getUser(value);
-                usernames = user.getName();
+            final ImmutableList.Builder<String> usernameList = ImmutableList.builder();
+            for (final String userKey : getUserKeys(definition, value, valueString)) {
+                final User user = userLookupService.getUser(userKey);
+                usernameList.add(user.getName());
             }
+            final String usernames = Joiner.on(Strings.nullToEmpty(definition.getSeparator())).join(usernameList.build());
             return ImmutableCustomFieldValue.builder()
                     .definition(definition)
                     .value(splitValueString)
@@ -175,6 +165,47 @@ public class CustomFieldApiParser {
         }
     }
 
+    /**
+     * Adds the key of every user the values of a USERNAME field on this issue could refer to, so they can be looked
+     * up together before the actions are built.
+     */
+    public void collectUserKeys(final CustomFieldDefinition definition, final Issue issue, final Collection<String> keys) {
+        if(!CustomFieldDefinition.MultiValueFieldConfiguration.USERNAME.equals(definition.getMultiValueFieldConfiguration())) {
+            return;
+        }
+
+        final String[] labels = definition.getItemLabels();
+        for (final History history : issue.changelog.histories) {
+            for (final String label : labels) {
+                for (final Item item : history.getAllItems(label)) {
+                    getUserKeys(definition, item.from, item.fromString).forEach(keys::add);
+                    getUserKeys(definition, item.to, item.toString).forEach(keys::add);
+                }
+            }
+        }
+
+        for (final String id : definition.getCustomFieldId()) {
+            final JsonNode json = issue.fields.getCustomField(id);
+            if (json != null && json.has("key")) {
+                keys.add(getValueFromNode(definition, json.get("key")));
+            }
+        }
+    }
+
+    /**
+     * The user keys a USERNAME field's changelog value refers to: the verbose value split on the separator if the
+     * field is split, otherwise the single keyed value.
+     */
+    private static Iterable<String> getUserKeys(final CustomFieldDefinition definition,
+                                                @Nullable final String value,
+                                                @Nullable final String valueString) {
+        if (definition.isSplit() && StringUtils.isNotEmpty(valueString)) {
+            return Splitter.on(definition.getSeparator()).split(definition.split(valueString));
+        } else {
+            return Collections.singletonList(value);
+        }
+    }
+
     CustomFieldValue customFieldFromInitialFields(final CustomFieldDefinition definition,
                                                   final JsonNode json) {
         if(CustomFieldDefinition.MultiValueFieldConfiguration.NONE.equals(definition.getMultiValueFieldConfiguration())) {
@@ -233,8 +264,8 @@ public class CustomFieldApiParser {
         } else {
             if(node.has("value")) {
                 final String nodeValue = node.get("value").asText();
-                if (definition.getSplit() != SplitRule.NONE && StringUtils.isNotEmpty(definition.getSeparator())) {
-                    return nodeValue.replaceAll(definition.getSplit().getSplitPattern(), definition.getSeparator());
+                if (definition.isSplit()) {
+                    return definition.split(nodeValue);
                 } else {
                     return nodeValue;
                 }
@@ -248,8 +279,8 @@ public class CustomFieldApiParser {
                     final int start = index + "name=".length();
                     final int end = text.indexOf(",", start);
                     return text.substring(start, end >= start ? end : text.length());
-                } else if (definition.getSplit() != SplitRule.NONE && StringUtils.isNotEmpty(definition.getSeparator())) {
-                    return text.replaceAll(definition.getSplit().getSplitPattern(), definition.getSeparator());
+                } else if (definition.isSplit()) {
+                    return definition.split(text);
                 } else {
                     return text;
                 }
@@ -257,21 +288,7 @@ public class CustomFieldApiParser {
         }
     }
 
-    @VisibleForTesting
     static String getItemLabel(final String name) {
         return name.toLowerCase().replace(" ", "-");
     }
-
-    static String[] getItemLabels(final CustomFieldDefinition definition) {
-        final String label = getItemLabel(definition.getName());
-
-        if (ArrayUtils.isEmpty(definition.getAlternateNames())) {
-            return new String[] { label };
-        } else {
-            return ImmutableList.<String>builder()
-                    .add(label)
-                    .addAll(Arrays.stream(definition.getAlternateNames()).map(CustomFieldApiParser::getItemLabel)::iterator)
-                    .build().toArray(new String[0]);
-        }
-    }
 }
@@ -5,10 +5,13 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.collect.ImmutableList;
 
+import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.immutables.value.Value;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Pattern;
 
 @Value.Immutable
 @JsonSerialize(as = ImmutableCustomFieldDefinition.class)
@@ -49,15 +52,21 @@ public interface CustomFieldDefinition {
         NONE("");
 
         private final String splitPattern;
+        private final Pattern pattern;
 
         SplitRule(final String splitPattern) {
             this.splitPattern = splitPattern;
+            this.pattern = Pattern.compile(splitPattern);
         }
 
         public String getSplitPattern() {
             return splitPattern;
         }
 
+        public Pattern getPattern() {
+            return pattern;
+        }
+
         @JsonCreator
         public static SplitRule fromString(final String key) {
             return StringUtils.isEmpty(key) ? NONE : SplitRule.valueOf(key.toUpperCase());
@@ -93,6 +102,39 @@ public interface CustomFieldDefinition {
         return Transformation.NONE;
     }
 
+    /**
+     * The labels this field's changes have in the changelog: its name, then each alternate name. Shared, so don't
+     * change it.
+     */
+    @Value.Lazy
+    default String[] getItemLabels() {
+        final String label = CustomFieldApiParser.getItemLabel(getName());
+
+        if (ArrayUtils.isEmpty(getAlternateNames())) {
+            return new String[] { label };
+        } else {
+            return ImmutableList.<String>builder()
+                    .add(label)
+                    .addAll(Arrays.stream(getAlternateNames()).map(CustomFieldApiParser::getItemLabel)::iterator)
+                    .build().toArray(new String[0]);
+        }
+    }
+
+    /**
+     * Whether values are split with {@link #getSplit()} and joined back together with {@link #getSeparator()}.
+     */
+    default boolean isSplit() {
+        return getSplit() != SplitRule.NONE && StringUtils.isNotEmpty(getSeparator());
+    }
+
+    /**
+     * Replaces each match of the split rule in {@code value} with the separator, the same as
+     * {@code value.replaceAll(getSplit().getSplitPattern(), getSeparator())} without compiling the pattern again.
+     */
+    default String split(final String value) {
+        return getSplit().getPattern().matcher(value).replaceAll(getSeparator());
+    }
+
     default List<String> getHeaders() {
         switch(getMultiValueFieldConfiguration()) {
             case SEPARATE:
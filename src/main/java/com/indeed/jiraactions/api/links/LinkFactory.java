@@ -1,6 +1,7 @@
 package com.indeed.jiraactions.api.links;
 
 import com.indeed.jiraactions.api.response.issue.changelog.histories.Item;
+import com.indeed.jiraactions.collections.CopyOnWriteSet;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,7 +9,6 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -34,8 +34,17 @@ public class LinkFactory {
                 .build();
     }
 
+    /**
+     * @return {@code source} itself if there are no changes
+     */
     public Set<Link> mergeLinks(@Nonnull final Set<Link> source, final Collection<Item> changes) {
-        final Set<Link> output = new HashSet<>(source);
+        if (changes.isEmpty()) {
+            return source;
+        }
+        return CopyOnWriteSet.copyOf(source).with(output -> applyChanges(output, changes));
+    }
+
+    private void applyChanges(final Set<Link> output, final Collection<Item> changes) {
         for(final Item item : changes) {
             if(!StringUtils.isEmpty(item.fromString)) {
                 try {
@@ -54,7 +63,5 @@ public class LinkFactory {
                  }
             }
         }
-
-        return output;
     }
 }
@@ -12,7 +12,11 @@ import com.indeed.jiraactions.api.response.issue.fields.Field;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -33,6 +37,10 @@ public class Issue {
             "fixversions"
     );
 
+    // Built the first time an initial value is asked for, and again if the histories are replaced or re-sorted
+    private History[] initialStateHistories;
+    private InitialState initialState;
+
     public String initialValue(final String field) throws IOException {
         return initialValue(field, field);
     }
@@ -49,19 +57,14 @@ public class Issue {
                             Lists.newArrayList() :
                             Lists.newArrayList(Issues.split(this.fields.getStringValue(field)));
 
-            if (null != this.changelog && null != this.changelog.histories) {
-                for (int i = this.changelog.histories.length - 1; i >= 0; i--) {
-                    final History history = this.changelog.histories[i];
-                    for (final Item item: history.getAllItems(field)) {
-                        // Reverse the action.
-                        if (null == item.to) {
-                            // Reverse the removal
-                            values.add(item.fromString);
-                        } else {
-                            // Reverse an addition
-                            values.remove(item.toString);
-                        }
-                    }
+            for (final Item item : getInitialState().getReversedItems(field)) {
+                // Reverse the action.
+                if (null == item.to) {
+                    // Reverse the removal
+                    values.add(item.fromString);
+                } else {
+                    // Reverse an addition
+                    values.remove(item.toString);
                 }
             }
 
@@ -89,9 +92,81 @@ public class Issue {
         }
     }
 
+    /**
+     * The same as {@link ChangeLog#getFirstHistoryItem}: the first matching item of the earliest history that has
+     * any of {@code fields}, preferring fields earlier in the list within that history.
+     */
     @Nullable
     public Item initialItem(final boolean acceptCustom, final String... fields) {
-        return this.changelog.getFirstHistoryItem(acceptCustom, fields);
+        final Map<String, FirstItem> firstItems = acceptCustom
+                ? getInitialState().firstItems
+                : getInitialState().firstNonCustomItems;
+        FirstItem best = null;
+        for (final String field : fields) {
+            final FirstItem candidate = firstItems.get(field);
+            if (candidate != null && (best == null || candidate.history < best.history)) {
+                best = candidate;
+            }
+        }
+        return best == null ? null : best.item;
+    }
+
+    private InitialState getInitialState() {
+        final History[] histories = changelog == null ? null : changelog.histories;
+        InitialState state = initialState;
+        if (state == null || initialStateHistories != histories) {
+            state = new InitialState(histories == null ? new History[0] : histories);
+            initialState = state;
+            initialStateHistories = histories;
+        }
+        return state;
+    }
+
+    /**
+     * Everything needed to reconstruct the issue as it was created, gathered in one pass backwards through the
+     * changelog instead of one pass per field.
+     */
+    private static class InitialState {
+        private final Map<String, FirstItem> firstItems = new HashMap<>();
+        private final Map<String, FirstItem> firstNonCustomItems = new HashMap<>();
+        private final Map<String, List<Item>> reversedItems = new HashMap<>();
+
+        private InitialState(final History[] histories) {
+            for (int i = histories.length - 1; i >= 0; i--) {
+                final Item[] items = histories[i].items;
+                for (final Item item : items) {
+                    if (MULTIVALUED_RICH_FIELDS.contains(item.field)) {
+                        reversedItems.computeIfAbsent(item.field, field -> new ArrayList<>()).add(item);
+                    }
+                }
+                // Backwards, so the first item of a field in this history is the one left
+                for (int j = items.length - 1; j >= 0; j--) {
+                    final Item item = items[j];
+                    final FirstItem firstItem = new FirstItem(i, item);
+                    firstItems.put(item.field, firstItem);
+                    if (!item.customField) {
+                        firstNonCustomItems.put(item.field, firstItem);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Every item of a multivalued rich field, latest history first.
+         */
+        private List<Item> getReversedItems(final String field) {
+            return reversedItems.getOrDefault(field, Collections.emptyList());
+        }
+    }
+
+    private static class FirstItem {
+        private final int history;
+        private final Item item;
+
+        private FirstItem(final int history, final Item item) {
+            this.history = history;
+            this.item = item;
+        }
     }
 
     public String toString() {
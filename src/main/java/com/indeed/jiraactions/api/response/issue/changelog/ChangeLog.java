@@ -14,8 +14,18 @@ import javax.annotation.Nullable;
 @JsonIgnoreProperties(ignoreUnknown=true)
 
 public class ChangeLog {
+    public int startAt;
+    public int maxResults;
+    public int total;
     public History[] histories;
 
+    /**
+     * The search API only includes a limited number of histories per issue, so long-lived issues can be cut short.
+     */
+    public boolean isTruncated() {
+        return histories != null && total > histories.length;
+    }
+
     @Nullable
     public Item getFirstHistoryItem(final boolean acceptCustom, final String... fields) {
         for (final History history : histories) {
@@ -33,7 +43,8 @@ public class ChangeLog {
         // It seems JIRA API's response is already sorted, but
         // just in case, use this method to make sure.
         // Because it's usually already sorted, use insertion sort algorithm here.
-
+        // Anything derived from the histories is keyed on the array, so sort a copy if anything has to move.
+        boolean copied = false;
         for (int i=1; i < histories.length; i++) {
             final History history = histories[i];
             final DateTime date = history.created;
@@ -43,6 +54,10 @@ public class ChangeLog {
                 if (date.isAfter(comparedDate) || date.equals(comparedDate)) {
                     break;
                 }
+                if (!copied) {
+                    histories = histories.clone();
+                    copied = true;
+                }
                 histories[j+1] = histories[j];
             }
             histories[j+1] = history;
@@ -10,10 +10,13 @@ import org.joda.time.DateTime;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -32,12 +35,21 @@ public class History {
         this.created = JiraActionsUtil.parseDateTime(created);
     }
 
+    // Positions in items of each field's items, built the first time a field is looked up
+    private Item[] indexedItems;
+    private Map<String, int[]> fieldIndex;
+    private String changedFields;
+
     public String getChangedFields() {
-        final Set<String> fieldsChanged = new HashSet<>();
-        for (final Item item : items) {
-            fieldsChanged.add(item.field);
+        getFieldIndex();
+        if (changedFields == null) {
+            final Set<String> fieldsChanged = new HashSet<>();
+            for (final Item item : items) {
+                fieldsChanged.add(item.field);
+            }
+            changedFields = Joiner.on(" ").join(fieldsChanged.iterator());
         }
-        return Joiner.on(" ").join(fieldsChanged.iterator());
+        return changedFields;
     }
 
     public boolean itemExist(final String field) {
@@ -45,18 +57,18 @@ public class History {
     }
 
     public boolean itemExist(final String field, final boolean acceptCustom) {
-        for (final Item item : items) {
-            if (Objects.equals(item.field, field) && (acceptCustom || !item.customField)) {
-                return true;
-            }
-        }
-        return false;
+        return getItem(field, acceptCustom) != null;
     }
 
     @Nullable
     public Item getItem(final String field, final boolean acceptCustom) {
-        for (final Item item : items) {
-            if (Objects.equals(item.field, field) && (acceptCustom || !item.customField)) {
+        final int[] positions = getFieldIndex().get(field);
+        if (positions == null) {
+            return null;
+        }
+        for (final int position : positions) {
+            final Item item = items[position];
+            if (acceptCustom || !item.customField) {
                 return item;
             }
         }
@@ -64,26 +76,65 @@ public class History {
         return null;
     }
 
+    /**
+     * The first item (in changelog order) for any of {@code fields} that has a value, or else the last one without.
+     */
     @Nullable
     public Item getItem(final boolean acceptCustom, final String... fields) {
-        Item bestItem = null;
-        for(final Item item : items) {
-            for(final String field : fields) {
-                if (Objects.equals(item.field, field) && (acceptCustom || !item.customField)) {
-                    if(StringUtils.isNotEmpty(item.toString)) {
-                        return item;
+        final Map<String, int[]> index = getFieldIndex();
+        int firstWithValue = Integer.MAX_VALUE;
+        int lastWithoutValue = -1;
+        for (final String field : fields) {
+            final int[] positions = index.get(field);
+            if (positions == null) {
+                continue;
+            }
+            for (final int position : positions) {
+                final Item item = items[position];
+                if (acceptCustom || !item.customField) {
+                    if (StringUtils.isNotEmpty(item.toString)) {
+                        firstWithValue = Math.min(firstWithValue, position);
                     } else {
-                        bestItem = item;
-                        break;
+                        lastWithoutValue = Math.max(lastWithoutValue, position);
                     }
                 }
             }
         }
-        return bestItem;
+
+        if (firstWithValue != Integer.MAX_VALUE) {
+            return items[firstWithValue];
+        }
+        return lastWithoutValue >= 0 ? items[lastWithoutValue] : null;
     }
 
     public List<Item> getAllItems(@Nonnull final String field) {
-        return Arrays.stream(items).filter(i -> field.equals(i.field)).collect(Collectors.toList());
+        final int[] positions = getFieldIndex().get(field);
+        if (positions == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(positions).mapToObj(position -> items[position]).collect(Collectors.toList());
+    }
+
+    /**
+     * Rebuilt if {@link #items} is replaced, which only tests do.
+     */
+    private Map<String, int[]> getFieldIndex() {
+        final Item[] currentItems = items;
+        Map<String, int[]> index = fieldIndex;
+        if (index == null || indexedItems != currentItems) {
+            final Map<String, List<Integer>> positions = new HashMap<>();
+            for (int i = 0; i < currentItems.length; i++) {
+                positions.computeIfAbsent(currentItems[i].field, field -> new ArrayList<>(1)).add(i);
+            }
+            index = new HashMap<>(positions.size() * 2);
+            for (final Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+                index.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            changedFields = null;
+            fieldIndex = index;
+            indexedItems = currentItems;
+        }
+        return index;
     }
 
     public String getItemLastValue(final String field) {
@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author soono
@@ -40,12 +41,19 @@ public class Item {
         }
     }
 
+    // There are only so many field names, so each one is only normalized once
+    private static final Map<String, String> normalizedFields = new ConcurrentHashMap<>();
+
     @JsonProperty("field")
     public void setField(final String field) {
+        this.field = normalizedFields.computeIfAbsent(field, Item::normalizeField);
+    }
+
+    private static String normalizeField(final String field) {
         if(jiraFieldMapping.containsKey(field)) {
-            this.field = jiraFieldMapping.get(field);
+            return jiraFieldMapping.get(field);
         } else {
-            this.field = field.toLowerCase().replaceAll("\\s", "-");
+            return field.toLowerCase().replaceAll("\\s", "-");
         }
     }
 }
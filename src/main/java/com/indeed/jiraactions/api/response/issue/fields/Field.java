@@ -1,6 +1,5 @@
 package com.indeed.jiraactions.api.response.issue.fields;
 
-import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Joiner;
@@ -47,8 +46,9 @@ public class Field {
         this.updated = JiraActionsUtil.parseDateTime(updated);
     }
 
-    @SuppressWarnings("unused")
-    @JsonAnySetter
+    /**
+     * Every other property ends up here, by way of {@code IssueAPIParser}, which skips custom fields we don't use.
+     */
     public void setOtherProperty(final String key, final JsonNode value) {
         otherProperties.put(key, value);
     }
@@ -3,8 +3,10 @@ package com.indeed.jiraactions.api.statustimes;
 import com.indeed.jiraactions.Action;
 import com.indeed.jiraactions.api.response.issue.changelog.histories.History;
 import com.indeed.jiraactions.api.response.issue.fields.comment.Comment;
+import com.indeed.jiraactions.collections.CopyOnWriteMap;
 import org.joda.time.DateTime;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nonnull;
@@ -12,14 +14,12 @@ import javax.annotation.Nonnull;
 public class StatusTimeFactory {
 
     public Map<String, StatusTime> firstStatusTime(@Nonnull final String status) {  // Used for the first ever status
-        final Map<String, StatusTime> statusTimeMap = new HashMap<>();
         final StatusTime st = ImmutableStatusTime.builder()
                 .timetofirst(0)
                 .timetolast(0)
                 .timeinstatus(0)
                 .build();
-        statusTimeMap.put(status, st);
-        return statusTimeMap;
+        return CopyOnWriteMap.of(status, st);
     }
 
     private StatusTime addStatus(@Nonnull final long timetofirst, final long timetolast) {
@@ -44,33 +44,32 @@ public class StatusTimeFactory {
                 .build();
     }
 
+    // Only the entries that change are collected; the rest are shared with the previous action's map
     public Map<String, StatusTime> getStatusTimeUpdate(final Map<String, StatusTime> prevMap, final History history, final Action prevAction) {
-        final Map<String, StatusTime> statusTimeMap = new HashMap<>(prevMap);
+        final Map<String, StatusTime> changes = new HashMap<>(4);
         final String status = history.itemExist("status") ? history.getItemLastValue("status") : prevAction.getStatus();
-        StatusTime statusTime = statusTimeMap.get(prevAction.getStatus());
-        statusTimeMap.replace(prevAction.getStatus(), updateTime(statusTimeMap.get(prevAction.getStatus()), getTimeDiff(prevAction.getTimestamp(), history.created)));
-        if (statusTimeMap.containsKey(status)) {
+        changes.put(prevAction.getStatus(), updateTime(prevMap.get(prevAction.getStatus()), getTimeDiff(prevAction.getTimestamp(), history.created)));
+        if (prevMap.containsKey(status)) {
             if (!prevAction.getStatus().equals(status)) {
-                statusTimeMap.replace(status, updateTimeToLast(statusTimeMap.get(status), prevAction.getIssueage() + getTimeDiff(prevAction.getTimestamp(), history.created)));
+                changes.put(status, updateTimeToLast(prevMap.get(status), prevAction.getIssueage() + getTimeDiff(prevAction.getTimestamp(), history.created)));
             }
         } else {
-            statusTimeMap.put(status, addStatus(prevAction.getIssueage() + getTimeDiff(prevAction.getTimestamp(), history.created), prevAction.getIssueage() + getTimeDiff(prevAction.getTimestamp(), history.created)));
+            changes.put(status, addStatus(prevAction.getIssueage() + getTimeDiff(prevAction.getTimestamp(), history.created), prevAction.getIssueage() + getTimeDiff(prevAction.getTimestamp(), history.created)));
         }
-        return statusTimeMap;
+        return CopyOnWriteMap.copyOf(prevMap).plusAll(changes);
     }
 
     public Map<String, StatusTime> getStatusTimeComment(final Map<String, StatusTime> prevMap, final Comment comment, final Action prevAction) {
-        final Map<String, StatusTime> statusTimeMap = new HashMap<>(prevMap);
-        final String status = prevAction.getStatus();
-        statusTimeMap.replace(status, updateTime(statusTimeMap.get(status), getTimeDiff(prevAction.getTimestamp(), comment.created)));
-        return statusTimeMap;
+        return addTimeInStatus(prevMap, prevAction, comment.created);
     }
 
     public Map<String, StatusTime> getStatusTimeCurrent(final Map<String, StatusTime> prevMap, final Action prevAction, final DateTime endDate) {
-        final Map<String, StatusTime> statusTimeMap = new HashMap<>(prevMap);
+        return addTimeInStatus(prevMap, prevAction, endDate);
+    }
+
+    private Map<String, StatusTime> addTimeInStatus(final Map<String, StatusTime> prevMap, final Action prevAction, final DateTime until) {
         final String status = prevAction.getStatus();
-        statusTimeMap.replace(status, updateTime(statusTimeMap.get(status), getTimeDiff(prevAction.getTimestamp(), endDate)));
-        return statusTimeMap;
+        return CopyOnWriteMap.copyOf(prevMap).plusAll(Collections.singletonMap(status, updateTime(prevMap.get(status), getTimeDiff(prevAction.getTimestamp(), until))));
     }
 
     private long getTimeDiff(final DateTime before, final DateTime after) {
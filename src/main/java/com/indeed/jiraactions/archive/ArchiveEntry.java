@@ -0,0 +1,32 @@
+package com.indeed.jiraactions.archive;
+
+import org.immutables.value.Value;
+
+/**
+ * One archived response: which segment it's in, where, and what it was a response to.
+ */
+@Value.Immutable
+public interface ArchiveEntry {
+    enum Kind {
+        /** A page of the issue search. */
+        SEARCH,
+        /** A page of one issue's changelog, fetched because the search truncated it. */
+        CHANGELOG
+    }
+
+    Kind getKind();
+
+    /** Which pass of the crawl the response was for. Each time the crawl starts over is a new pass. */
+    int getPass();
+
+    /** The issue a changelog page is for, empty for search pages. */
+    String getKey();
+
+    int getSegment();
+
+    /** Where the gzipped response starts in its segment. */
+    long getOffset();
+
+    /** Length of the gzipped response. */
+    int getLength();
+}
@@ -0,0 +1,108 @@
+package com.indeed.jiraactions.archive;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads back what a {@link PageArchiveWriter} saved.
+ */
+public class PageArchiveReader implements Closeable {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Splitter TAB_SPLITTER = Splitter.on('\t');
+
+    private final File dir;
+    private final List<ArchiveEntry> entries;
+    private int openSegment = -1;
+    @Nullable
+    private RandomAccessFile segmentFile = null;
+
+    public PageArchiveReader(final File dir) throws IOException {
+        this.dir = dir;
+        final File indexFile = new File(dir, PageArchiveWriter.INDEX_FILE);
+        if (!indexFile.exists()) {
+            throw new IOException("No archive in " + dir);
+        }
+
+        final ImmutableList.Builder<ArchiveEntry> entries = ImmutableList.builder();
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final List<String> columns = TAB_SPLITTER.splitToList(line);
+                if (columns.size() != 6) {
+                    throw new IOException("Invalid line in " + indexFile + ": " + line);
+                }
+                entries.add(ImmutableArchiveEntry.builder()
+                        .kind(ArchiveEntry.Kind.valueOf(columns.get(0)))
+                        .pass(Integer.parseInt(columns.get(1)))
+                        .key(columns.get(2))
+                        .segment(Integer.parseInt(columns.get(3)))
+                        .offset(Long.parseLong(columns.get(4)))
+                        .length(Integer.parseInt(columns.get(5)))
+                        .build());
+            }
+        }
+        this.entries = entries.build();
+    }
+
+    /**
+     * In the order they were written.
+     */
+    public List<ArchiveEntry> getEntries() {
+        return entries;
+    }
+
+    public byte[] read(final ArchiveEntry entry) throws IOException {
+        if (segmentFile == null || openSegment != entry.getSegment()) {
+            if (segmentFile != null) {
+                segmentFile.close();
+            }
+            segmentFile = new RandomAccessFile(PageArchiveWriter.getSegmentFile(dir, entry.getSegment()), "r");
+            openSegment = entry.getSegment();
+        }
+
+        final byte[] compressed = new byte[entry.getLength()];
+        segmentFile.seek(entry.getOffset());
+        segmentFile.readFully(compressed);
+        try (final GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    public List<String> readLinkTypes() throws IOException {
+        return readList(PageArchiveWriter.LINK_TYPES_FILE);
+    }
+
+    public List<String> readStatusTypes() throws IOException {
+        return readList(PageArchiveWriter.STATUS_TYPES_FILE);
+    }
+
+    private List<String> readList(final String name) throws IOException {
+        return objectMapper.readValue(new File(dir, name), new TypeReference<List<String>>() { });
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (segmentFile != null) {
+            segmentFile.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.indeed.jiraactions.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Saves JIRA responses exactly as they came in, so a crawl can be processed again later without asking JIRA for
+ * anything. Responses are gzipped one at a time and appended to numbered segment files, and each gets a line in
+ * {@code index.tsv} saying what it was and where to find it.
+ */
+public class PageArchiveWriter implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PageArchiveWriter.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    static final String INDEX_FILE = "index.tsv";
+    static final String LINK_TYPES_FILE = "linktypes.json";
+    static final String STATUS_TYPES_FILE = "statustypes.json";
+    private static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private final File dir;
+    private final Writer index;
+    private int segment = -1;
+    @Nullable
+    private OutputStream segmentOut = null;
+    private long segmentOffset = 0;
+    private int entries = 0;
+
+    public PageArchiveWriter(final File dir) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create archive directory " + dir);
+        }
+        final File indexFile = new File(dir, INDEX_FILE);
+        if (indexFile.exists()) {
+            throw new IOException("There's already an archive in " + dir + ", not overwriting it.");
+        }
+        this.dir = dir;
+        this.index = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(indexFile), StandardCharsets.UTF_8));
+    }
+
+    public void writeSearchPage(final int pass, final byte[] raw) throws IOException {
+        write(ArchiveEntry.Kind.SEARCH, pass, "", raw);
+    }
+
+    public void writeChangeLogPage(final int pass, final String key, final byte[] raw) throws IOException {
+        write(ArchiveEntry.Kind.CHANGELOG, pass, key, raw);
+    }
+
+    public void writeLinkTypes(final List<String> linkTypes) throws IOException {
+        objectMapper.writeValue(new File(dir, LINK_TYPES_FILE), linkTypes);
+    }
+
+    public void writeStatusTypes(final List<String> statusTypes) throws IOException {
+        objectMapper.writeValue(new File(dir, STATUS_TYPES_FILE), statusTypes);
+    }
+
+    /**
+     * Changelog pages are fetched from several threads at once, so writes are serialized here.
+     */
+    private synchronized void write(final ArchiveEntry.Kind kind, final int pass, final String key,
+                                    final byte[] raw) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4);
+        try (final GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(raw);
+        }
+
+        if (segmentOut == null || segmentOffset + compressed.size() > SEGMENT_BYTES) {
+            nextSegment();
+        }
+        compressed.writeTo(segmentOut);
+
+        index.write(kind + "\t" + pass + "\t" + key + "\t" + segment + "\t" + segmentOffset + "\t" + compressed.size() + "\n");
+        segmentOffset += compressed.size();
+        entries++;
+    }
+
+    private void nextSegment() throws IOException {
+        if (segmentOut != null) {
+            segmentOut.close();
+        }
+        segment++;
+        segmentOut = new FileOutputStream(getSegmentFile(dir, segment));
+        segmentOffset = 0;
+    }
+
+    static File getSegmentFile(final File dir, final int segment) {
+        return new File(dir, String.format("pages-%05d.json.gz", segment));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (segmentOut != null) {
+                segmentOut.close();
+            }
+        } finally {
+            index.close();
+        }
+        log.info("Archived {} responses in {} segments to {}.", entries, segment + 1, dir);
+    }
+}
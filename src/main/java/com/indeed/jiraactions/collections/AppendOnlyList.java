@@ -0,0 +1,95 @@
+package com.indeed.jiraactions.collections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list that shares its elements with the list it was made from. Appending to the newest list built on
+ * the same elements doesn't copy anything, so a timeline of actions that each add to the last one's list is O(n)
+ * instead of O(n^2). Appending to an older list (a branch) copies it first.
+ */
+public final class AppendOnlyList<E> extends AbstractList<E> implements RandomAccess {
+    private final Elements elements;
+    private final int size;
+
+    private AppendOnlyList(final Elements elements, final int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    public static <E> AppendOnlyList<E> of() {
+        return new AppendOnlyList<>(new Elements(4), 0);
+    }
+
+    public static <E> AppendOnlyList<E> of(final E element) {
+        return AppendOnlyList.<E>of().plus(element);
+    }
+
+    /**
+     * @return {@code list} itself if it's already an AppendOnlyList, so it can still be appended to without copying
+     */
+    public static <E> AppendOnlyList<E> copyOf(final List<E> list) {
+        if (list instanceof AppendOnlyList) {
+            return (AppendOnlyList<E>) list;
+        }
+        final Elements elements = new Elements(Math.max(4, list.size()));
+        for (final E element : list) {
+            elements.add(Objects.requireNonNull(element));
+        }
+        return new AppendOnlyList<>(elements, list.size());
+    }
+
+    public AppendOnlyList<E> plus(final E element) {
+        Objects.requireNonNull(element);
+        synchronized (elements) {
+            if (elements.size == size) {
+                elements.add(element);
+                return new AppendOnlyList<>(elements, size + 1);
+            }
+        }
+
+        final Elements copy = new Elements(Math.max(4, size * 2));
+        for (int i = 0; i < size; i++) {
+            copy.add(get(i));
+        }
+        copy.add(element);
+        return new AppendOnlyList<>(copy, size + 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (E) elements.array[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Shared by every list made from the same first list. Elements are only ever added past the end, so each list
+     * sees the same first {@code size} elements for as long as it lives.
+     */
+    private static class Elements {
+        private volatile Object[] array;
+        private int size;
+
+        private Elements(final int capacity) {
+            this.array = new Object[capacity];
+        }
+
+        private void add(final Object element) {
+            if (size == array.length) {
+                array = Arrays.copyOf(array, size * 2);
+            }
+            array[size++] = element;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.indeed.jiraactions.collections;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable map that is copied once per change, and not at all when nothing changes. The values themselves are
+ * shared with the map it was made from.
+ */
+public final class CopyOnWriteMap<K, V> extends AbstractMap<K, V> {
+    private final Map<K, V> map;
+
+    private CopyOnWriteMap(final Map<K, V> map) {
+        this.map = map;
+    }
+
+    public static <K, V> CopyOnWriteMap<K, V> of() {
+        return new CopyOnWriteMap<>(Collections.emptyMap());
+    }
+
+    public static <K, V> CopyOnWriteMap<K, V> of(final K key, final V value) {
+        return new CopyOnWriteMap<>(Collections.singletonMap(Objects.requireNonNull(key), Objects.requireNonNull(value)));
+    }
+
+    public static <K, V> CopyOnWriteMap<K, V> copyOf(final Map<K, V> map) {
+        if (map instanceof CopyOnWriteMap) {
+            return (CopyOnWriteMap<K, V>) map;
+        }
+        return new CopyOnWriteMap<>(new HashMap<>(map));
+    }
+
+    /**
+     * @return a map with {@code changes} applied over this one's entries, or this map if they change nothing
+     */
+    public CopyOnWriteMap<K, V> plusAll(final Map<K, V> changes) {
+        boolean changed = false;
+        for (final Map.Entry<K, V> change : changes.entrySet()) {
+            if (map.get(change.getKey()) != change.getValue()) {
+                changed = true;
+                break;
+            }
+        }
+        if (!changed) {
+            return this;
+        }
+
+        final Map<K, V> copy = new HashMap<>(map);
+        for (final Map.Entry<K, V> change : changes.entrySet()) {
+            copy.put(Objects.requireNonNull(change.getKey()), Objects.requireNonNull(change.getValue()));
+        }
+        return new CopyOnWriteMap<>(copy);
+    }
+
+    @Override
+    public V get(final Object key) {
+        return map.get(key);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return Collections.unmodifiableMap(map).entrySet();
+    }
+}
@@ -0,0 +1,57 @@
+package com.indeed.jiraactions.collections;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * An immutable set that is copied once per change, and not at all when nothing changes.
+ */
+public final class CopyOnWriteSet<E> extends AbstractSet<E> {
+    private final Set<E> set;
+
+    private CopyOnWriteSet(final Set<E> set) {
+        this.set = set;
+    }
+
+    public static <E> CopyOnWriteSet<E> of() {
+        return new CopyOnWriteSet<>(Collections.emptySet());
+    }
+
+    public static <E> CopyOnWriteSet<E> copyOf(final Set<E> set) {
+        if (set instanceof CopyOnWriteSet) {
+            return (CopyOnWriteSet<E>) set;
+        }
+        return new CopyOnWriteSet<>(new HashSet<>(set));
+    }
+
+    /**
+     * @param changes makes its changes to a copy of this set
+     * @return the changed copy, or this set if nothing changed
+     */
+    public CopyOnWriteSet<E> with(final Consumer<Set<E>> changes) {
+        final Set<E> copy = new HashSet<>(set);
+        changes.accept(copy);
+        copy.forEach(Objects::requireNonNull);
+        return copy.equals(set) ? this : new CopyOnWriteSet<>(copy);
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return set.contains(o);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return Collections.unmodifiableSet(set).iterator();
+    }
+
+    @Override
+    public int size() {
+        return set.size();
+    }
+}
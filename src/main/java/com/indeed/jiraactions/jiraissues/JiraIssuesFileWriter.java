@@ -4,23 +4,26 @@ import com.indeed.jiraactions.JiraActionsIndexBuilderConfig;
 import com.indeed.jiraactions.JiraActionsUtil;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
-import javax.net.ssl.HttpsURLConnection;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -31,12 +34,14 @@ import java.util.zip.GZIPOutputStream;
 public class JiraIssuesFileWriter {
     private static final Logger log = LoggerFactory.getLogger(JiraIssuesFileWriter.class);
     private final JiraActionsIndexBuilderConfig config;
+    private final HttpClient httpClient;
 
     private WriterData writerData;
     private List<String> fields = new ArrayList<>();
 
-    public JiraIssuesFileWriter(final JiraActionsIndexBuilderConfig config) {
+    public JiraIssuesFileWriter(final JiraActionsIndexBuilderConfig config, final HttpClient httpClient) {
         this.config = config;
+        this.httpClient = httpClient;
     }
 
     @Nullable
@@ -51,20 +56,23 @@ public class JiraIssuesFileWriter {
         final File file = new File(config.getSnapshotIndexName() + "_downloaded.tsv");
         file.deleteOnExit();
         final FileOutputStream stream = new FileOutputStream(file);
-        final URL url = new URL(String.format("%s/%s/file/indexed/%s_%s.tsv.gz/",
-                config.getIuploadURL(), config.getSnapshotIndexName(), config.getSnapshotIndexName(), formattedDate));
-        log.info("Attempting to download previous TSV at {}", url.toString());
+        final String url = String.format("%s/%s/file/indexed/%s_%s.tsv.gz/",
+                config.getIuploadURL(), config.getSnapshotIndexName(), config.getSnapshotIndexName(), formattedDate);
+        log.info("Attempting to download previous TSV at {}", url);
 
         for (int tries = 1; tries <= config.getSnapshotReadRetries(); tries++) {
             backoff = Math.max(backoff / 2, 10000);
-            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestProperty("Authorization", basicAuth);
-            if (connection.getResponseCode() == 400) {
+            final HttpGet httpGet = new HttpGet(url);
+            httpGet.setHeader("Authorization", basicAuth);
+            final HttpResponse response = httpClient.execute(httpGet);
+            final StatusLine status = response.getStatusLine();
+            if (status.getStatusCode() == 400) {
+                EntityUtils.consume(response.getEntity());
                 log.info("Previous Day's TSV missing. Using API method.");
                 return null;
             }
 
-            try (final GZIPInputStream in = new GZIPInputStream(connection.getInputStream())) {
+            try (final GZIPInputStream in = new GZIPInputStream(getContent(response))) {
                 int length;
                 final byte[] buffer = new byte[1024];
                 while ((length = in.read(buffer)) > -1) {
@@ -75,6 +83,7 @@ public class JiraIssuesFileWriter {
                 in.close();
                 return file;
             } catch (final IOException e) {
+                EntityUtils.consumeQuietly(response.getEntity());
                 log.error("Failed to download yesterday's TSV on try {}/{}.", tries, config.getSnapshotReadRetries());
                 if (tries == 5) {
                     log.error("Failed on final try, aborting.", e);
@@ -86,6 +95,15 @@ public class JiraIssuesFileWriter {
         return null;
     }
 
+    private static InputStream getContent(final HttpResponse response) throws IOException {
+        final StatusLine status = response.getStatusLine();
+        if (status.getStatusCode() >= 300) {
+            EntityUtils.consume(response.getEntity());
+            throw new HttpResponseException(status.getStatusCode(), status.getReasonPhrase());
+        }
+        return response.getEntity().getContent();
+    }
+
     void compressAndUploadTsv() throws IOException {
         final String filename = compressGzip();
 
@@ -111,7 +129,8 @@ public class JiraIssuesFileWriter {
 
             for (int i = 0; i < config.getSnapshotWriteRetries(); i++) {
                 try {
-                    final HttpResponse response = HttpClientBuilder.create().build().execute(httpPost);
+                    final HttpResponse response = httpClient.execute(httpPost);
+                    EntityUtils.consume(response.getEntity());
                     log.info("Http response: " + response.getStatusLine().toString() + ": " + file.getName() + ".");
                     if (response.getStatusLine().getStatusCode() == 200) {
                         return;
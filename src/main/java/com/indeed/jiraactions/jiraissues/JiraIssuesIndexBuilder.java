@@ -3,6 +3,7 @@ package com.indeed.jiraactions.jiraissues;
 import com.google.common.base.Stopwatch;
 import com.indeed.jiraactions.JiraActionsIndexBuilderConfig;
 import com.indeed.jiraactions.JiraActionsUtil;
+import org.apache.http.client.HttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,8 +23,9 @@ public class JiraIssuesIndexBuilder {
     private long processTime = 0;
     private long uploadTime = 0;
 
-    public JiraIssuesIndexBuilder(final JiraActionsIndexBuilderConfig config, final List<String> fields, final List<String[]> issues) {
-        fileWriter = new JiraIssuesFileWriter(config);
+    public JiraIssuesIndexBuilder(final JiraActionsIndexBuilderConfig config, final HttpClient httpClient,
+                                  final List<String> fields, final List<String[]> issues) {
+        fileWriter = new JiraIssuesFileWriter(config, httpClient);
         process = new JiraIssuesProcess(JiraActionsUtil.parseDateTime(config.getStartDate()), JiraActionsUtil.parseDateTime(config.getEndDate()), config.getSnapshotLookbackMonths());
         parser = new JiraIssuesParser(config, fileWriter, process, fields, issues);
     }
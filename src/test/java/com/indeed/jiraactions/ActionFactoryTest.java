@@ -7,6 +7,7 @@ import com.indeed.jiraactions.api.IssueAPIParser;
 import com.indeed.jiraactions.api.customfields.CustomFieldApiParser;
 import com.indeed.jiraactions.api.customfields.CustomFieldDefinition;
 import com.indeed.jiraactions.api.response.issue.Issue;
+import com.indeed.jiraactions.api.response.issue.User;
 import com.indeed.jiraactions.api.response.issue.changelog.histories.History;
 import org.easymock.EasyMock;
 import org.junit.Assert;
@@ -94,6 +95,56 @@ public class ActionFactoryTest {
         }
     }
 
+    @Test
+    public void testUpdatesShareUnchangedCollections() throws IOException {
+        ActionFactory factory = newActionFactory();
+
+        try (final InputStream stream = getClass().getResourceAsStream("/ENGPLANS-10.testMultipleFixVersionsMixedHistory.json")) {
+            Assert.assertNotNull(stream);
+            final JsonNode node = new ObjectMapper().readTree(stream);
+            Issue issue = IssueAPIParser.getObject(node);
+            issue.changelog.sortHistories();
+            Action action = factory.create(issue);
+
+            for (final History history: issue.changelog.histories) {
+                final Action next = factory.update(action, history);
+                // The builder keeps what it's given, so nothing is copied unless it changed
+                if (history.getAllItems("link").isEmpty()) {
+                    Assert.assertSame(action.getLinks(), next.getLinks());
+                }
+                if (!history.itemExist("status") || history.getItemLastValue("status").equals(action.getStatus())) {
+                    Assert.assertSame(action.getStatusHistory(), next.getStatusHistory());
+                }
+                action = next;
+            }
+        }
+    }
+
+    @Test
+    public void testFoldMatchesUpdate() throws IOException {
+        ActionFactory factory = newActionFactory();
+
+        try (final InputStream stream = getClass().getResourceAsStream("/ENGPLANS-10.testMultipleFixVersionsMixedHistory.json")) {
+            Assert.assertNotNull(stream);
+            final JsonNode node = new ObjectMapper().readTree(stream);
+            Issue issue = IssueAPIParser.getObject(node);
+            issue.changelog.sortHistories();
+            Action action = factory.create(issue);
+            final ModifiableAction state = ModifiableAction.create().from(action);
+
+            for (final History history: issue.changelog.histories) {
+                action = factory.update(action, history);
+                factory.fold(state, history);
+
+                // Folding leaves out who made the change and what it changed, but everything else carries forward
+                final Action expected = ImmutableAction.copyOf(action)
+                        .withActor(User.INVALID_USER)
+                        .withFieldschanged("");
+                Assert.assertEquals(expected, state.toImmutable());
+            }
+        }
+    }
+
     private ActionFactory newActionFactory() {
         final JiraActionsIndexBuilderConfig config = EasyMock.createNiceMock(JiraActionsIndexBuilderConfig.class);
         EasyMock.expect(config.getCustomFields()).andReturn(new CustomFieldDefinition[0]).anyTimes();
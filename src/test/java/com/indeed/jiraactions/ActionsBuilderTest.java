@@ -121,6 +121,45 @@ public class ActionsBuilderTest {
         Assert.assertTrue(containsComment);
     }
 
+    @Test
+    public void testBuildActions_foldBeforeWindow() throws Exception {
+        setCreationDate(startDate.minusDays(10));
+        createHistory(startDate.minusDays(8));
+        createComment(startDate.minusDays(6));
+        createHistory(startDate.minusDays(5));
+        createComment(startDate.minusDays(4));
+        createComment(startDate.minusDays(3));
+        createComment(startDate.plusHours(1));
+        createHistory(startDate.plusHours(2));
+        createComment(startDate.plusHours(3));
+
+        final List<Action> all = new ActionsBuilder(actionFactory, issue, startDate, endDate).buildActions();
+        final List<Action> folded = new ActionsBuilder(actionFactory, issue, startDate, endDate, startDate).buildActions();
+
+        final List<Action> inWindow = new ArrayList<>();
+        for (final Action action : all) {
+            if (!action.getTimestamp().isBefore(startDate)) {
+                inWindow.add(action);
+            }
+        }
+        Assert.assertEquals(3, inWindow.size());
+        Assert.assertEquals(inWindow, folded);
+    }
+
+    @Test
+    public void testBuildActions_foldKeepsLastAction() throws Exception {
+        setCreationDate(startDate.minusDays(10));
+        createHistory(startDate.minusDays(8));
+        createComment(startDate.minusDays(6));
+
+        final List<Action> all = new ActionsBuilder(actionFactory, issue, startDate, endDate).buildActions();
+        final List<Action> folded = new ActionsBuilder(actionFactory, issue, startDate, endDate, startDate).buildActions();
+
+        Assert.assertEquals(3, all.size());
+        Assert.assertEquals(1, folded.size());
+        Assert.assertEquals(all.get(all.size() - 1), folded.get(0));
+    }
+
     @Test
     public void testBuildActions_addingComponents() throws IOException {
         // Custom JSON issue includes the addition and removal of components in various combinations,
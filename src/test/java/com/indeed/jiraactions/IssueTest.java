@@ -4,11 +4,17 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.indeed.jiraactions.api.IssueAPIParser;
 import com.indeed.jiraactions.api.response.issue.Issue;
+import com.indeed.jiraactions.api.response.issue.changelog.histories.History;
+import com.indeed.jiraactions.api.response.issue.changelog.histories.Item;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 
@@ -95,4 +101,38 @@ public class IssueTest {
                     equalTo("Specialized|Eng"));
         }
     }
+
+    /**
+     * The initial state is gathered in one pass, but must find the same items as searching the changelog does,
+     *  including after the histories are re-sorted.
+     */
+    @Test
+    public void testInitialItemMatchesChangelog() throws IOException {
+        try (final InputStream stream = getClass().getResourceAsStream("/ENGPLANS-10.testMultipleComponentsMixedHistory.json")) {
+            Assert.assertNotNull(stream);
+            final JsonNode node = new ObjectMapper().readTree(stream);
+            final Issue issue = IssueAPIParser.getObject(node);
+
+            final Set<String> fields = new HashSet<>();
+            for (final History history : issue.changelog.histories) {
+                for (final Item item : history.items) {
+                    fields.add(item.field);
+                }
+            }
+            fields.add("nosuchfield");
+
+            for (int i = 0; i < 2; i++) {
+                for (final String field : fields) {
+                    for (final boolean acceptCustom : new boolean[] { false, true }) {
+                        Assert.assertSame(field, issue.changelog.getFirstHistoryItem(acceptCustom, field),
+                                issue.initialItem(acceptCustom, field));
+                        Assert.assertSame(field, issue.changelog.getFirstHistoryItem(acceptCustom, field, "status"),
+                                issue.initialItem(acceptCustom, field, "status"));
+                    }
+                }
+                Collections.reverse(Arrays.asList(issue.changelog.histories));
+                issue.changelog.sortHistories();
+            }
+        }
+    }
 }
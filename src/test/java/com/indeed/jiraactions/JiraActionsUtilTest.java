@@ -0,0 +1,54 @@
+package com.indeed.jiraactions;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JiraActionsUtilTest {
+    @Test
+    public void testJiraTimestampsMatchJoda() {
+        final String[] timestamps = {
+                "2016-08-04T10:15:43.000-0500",
+                "2016-08-04 10:15:43.123-0500",
+                "2016-02-29T23:59:59.999+0000",
+                "2017-12-31T22:30:00.001+0530",
+                "2000-01-01T00:00:00.000-1200",
+                "1969-12-31T23:59:59.999+1400",
+        };
+        for (final String timestamp : timestamps) {
+            final DateTime expected = new DateTime(timestamp.replace(" ", "T"), JiraActionsUtil.RAMSES_TIME);
+            final DateTime actual = JiraActionsUtil.parseDateTime(timestamp);
+            Assert.assertEquals(timestamp, expected, actual);
+        }
+    }
+
+    @Test
+    public void testOtherFormatsStillParse() {
+        Assert.assertEquals(new DateTime("2016-08-04", JiraActionsUtil.RAMSES_TIME),
+                JiraActionsUtil.parseDateTime("2016-08-04"));
+        Assert.assertEquals(new DateTime("2016-08-04T10:15:43.000Z", JiraActionsUtil.RAMSES_TIME),
+                JiraActionsUtil.parseDateTime("2016-08-04T10:15:43.000Z"));
+        // Offsets with a colon are left to Joda
+        Assert.assertEquals(new DateTime("2016-08-04T10:15:43.000-05:00", JiraActionsUtil.RAMSES_TIME),
+                JiraActionsUtil.parseDateTime("2016-08-04T10:15:43.000-05:00"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testImpossibleDateIsRejected() {
+        JiraActionsUtil.parseDateTime("2017-02-29T10:15:43.000-0500");
+    }
+
+    @Test
+    public void testDateEncodingsMatchFormatting() {
+        final DateTime[] dates = {
+                JiraActionsUtil.parseDateTime("2016-08-04T10:15:43.000-0500"),
+                JiraActionsUtil.parseDateTime("2017-01-01T03:04:05.000+0000"),
+                new DateTime(0L, JiraActionsUtil.RAMSES_TIME),
+        };
+        for (final DateTime date : dates) {
+            Assert.assertEquals(Long.parseLong(date.toString("yyyyMMdd")), JiraActionsUtil.toDateLong(date));
+            Assert.assertEquals(Long.parseLong(date.toString("yyyyMMddHHmmss")), JiraActionsUtil.toDateTimeLong(date));
+            Assert.assertEquals(date.toString("yyyy-MM-dd"), JiraActionsUtil.toDateString(date));
+        }
+    }
+}
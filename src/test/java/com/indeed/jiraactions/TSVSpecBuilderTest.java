@@ -2,12 +2,17 @@ package com.indeed.jiraactions;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.indeed.jiraactions.api.customfields.CustomFieldDefinition;
 import com.indeed.jiraactions.api.customfields.CustomFieldDefinition.MultiValueFieldConfiguration;
 import com.indeed.jiraactions.api.customfields.CustomFieldValue;
 import com.indeed.jiraactions.api.customfields.ImmutableCustomFieldDefinition;
+import com.indeed.jiraactions.api.links.ImmutableLink;
+import com.indeed.jiraactions.api.links.Link;
 import com.indeed.jiraactions.api.response.issue.ImmutableUser;
 import com.indeed.jiraactions.api.response.issue.User;
+import com.indeed.jiraactions.api.statustimes.ImmutableStatusTime;
+import com.indeed.jiraactions.api.statustimes.StatusTime;
 import org.easymock.EasyMock;
 import org.easymock.EasyMockSupport;
 import org.joda.time.DateTime;
@@ -18,6 +23,7 @@ import org.junit.Test;
 
 import java.util.List;
 import java.util.OptionalInt;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -151,6 +157,25 @@ public class TSVSpecBuilderTest extends EasyMockSupport {
         );
     }
 
+    @Test
+    public void testMultiCustomFieldFormattedOncePerRow() {
+        final CustomFieldDefinition fieldDefinition = ImmutableCustomFieldDefinition.builder()
+                .imhotepFieldName("custom")
+                .name("my custom field")
+                .customFieldId("1234")
+                .multiValueFieldConfiguration(MultiValueFieldConfiguration.SEPARATE)
+                .build();
+        builder.addCustomFieldColumns(fieldDefinition);
+        final CustomFieldValue value = createNiceMock(CustomFieldValue.class);
+        EasyMock.expect(customFieldOutputter.getValues(value)).andReturn(ImmutableList.of("customvalue1", "customvalue2")).once();
+        EasyMock.expect(action.getCustomFieldValues()).andReturn(ImmutableMap.of(fieldDefinition, value)).anyTimes();
+        verifyHeadersAndValues(
+                ImmutableList.of("custom1", "custom2"),
+                ImmutableList.of("customvalue1", "customvalue2")
+        );
+        verifyAll();
+    }
+
     @Test
     public void testUserCustomField() {
         final CustomFieldDefinition fieldDefinition = ImmutableCustomFieldDefinition.builder()
@@ -168,6 +193,32 @@ public class TSVSpecBuilderTest extends EasyMockSupport {
         );
     }
 
+    @Test
+    public void testLinks() {
+        builder.addLinkColumns(ImmutableList.of("blocks", "is blocked by", "relates to"));
+        final Set<Link> links = ImmutableSet.of(
+                ImmutableLink.builder().targetKey("A-1").description("blocks").build(),
+                ImmutableLink.builder().targetKey("B-2").description("relates to").build());
+        EasyMock.expect(action.getLinks()).andReturn(links).anyTimes();
+        verifyHeadersAndValues(
+                ImmutableList.of("link_blocks*", "link_is_blocked_by*", "link_relates_to*", "links*"),
+                ImmutableList.of("A-1", "", "B-2", links.stream().map(Link::getTargetKey).collect(Collectors.joining(" ")))
+        );
+    }
+
+    @Test
+    public void testStatusTimes() {
+        builder.addStatusTimeColumns(ImmutableList.of("Open", "Closed"));
+        final StatusTime open = ImmutableStatusTime.builder().timeinstatus(1).timetofirst(2).timetolast(3).build();
+        EasyMock.expect(action.getStatusTimes()).andReturn(ImmutableMap.of("Open", open)).anyTimes();
+        EasyMock.expect(action.getStatusHistory()).andReturn(ImmutableList.of("Open")).anyTimes();
+        verifyHeadersAndValues(
+                ImmutableList.of("totaltime_open", "timetofirst_open", "timetolast_open",
+                        "totaltime_closed", "timetofirst_closed", "timetolast_closed", "statushistory*|"),
+                ImmutableList.of("1", "2", "3", "0", "0", "0", "Open")
+        );
+    }
+
     private CustomFieldValue newCustomFieldValue(final List<String> values) {
         final CustomFieldValue value = createNiceMock(CustomFieldValue.class);
         EasyMock.expect(customFieldOutputter.getValues(value)).andReturn(values).anyTimes();
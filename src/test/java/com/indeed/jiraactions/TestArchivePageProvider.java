@@ -0,0 +1,93 @@
+package com.indeed.jiraactions;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import com.indeed.jiraactions.api.customfields.CustomFieldDefinition;
+import com.indeed.jiraactions.api.response.issue.Issue;
+import com.indeed.jiraactions.archive.PageArchiveReader;
+import com.indeed.jiraactions.archive.PageArchiveWriter;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+public class TestArchivePageProvider {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReplaysPassesAndChangeLogs() throws Exception {
+        final JsonNode issueNode;
+        try (final InputStream stream = getClass().getResourceAsStream("/ENGPLANS-10.json")) {
+            issueNode = mapper.readTree(stream);
+        }
+        final int histories = issueNode.path("changelog").path("histories").size();
+        Assert.assertTrue(histories > 0);
+
+        // The search only returned one history; the rest came from the changelog endpoint
+        final ObjectNode truncated = issueNode.deepCopy();
+        final ObjectNode changelog = (ObjectNode) truncated.get("changelog");
+        final ArrayNode allHistories = (ArrayNode) changelog.get("histories");
+        changelog.putArray("histories").add(allHistories.get(0));
+        changelog.put("total", histories);
+
+        final ObjectNode changeLogPage = mapper.createObjectNode().put("startAt", 0).put("maxResults", 100).put("total", histories);
+        changeLogPage.set("values", allHistories);
+
+        final File dir = temporaryFolder.newFolder();
+        try (final PageArchiveWriter writer = new PageArchiveWriter(dir)) {
+            writer.writeSearchPage(0, mapper.writeValueAsBytes(page(truncated)));
+            writer.writeChangeLogPage(0, truncated.get("key").textValue(), mapper.writeValueAsBytes(changeLogPage));
+            writer.writeSearchPage(0, mapper.writeValueAsBytes(page(issueNode)));
+            writer.writeSearchPage(1, mapper.writeValueAsBytes(page(issueNode)));
+        }
+
+        final JiraActionsIndexBuilderConfig config = EasyMock.createNiceMock(JiraActionsIndexBuilderConfig.class);
+        EasyMock.expect(config.getStartDate()).andReturn("2016-01-01").anyTimes();
+        EasyMock.expect(config.getEndDate()).andReturn("2016-02-01").anyTimes();
+        EasyMock.expect(config.getCustomFields()).andReturn(new CustomFieldDefinition[0]).anyTimes();
+        EasyMock.replay(config);
+        final ActionFactory actionFactory = EasyMock.createNiceMock(ActionFactory.class);
+        EasyMock.replay(actionFactory);
+
+        try (final PageArchiveReader reader = new PageArchiveReader(dir)) {
+            final ArchivePageProvider provider = new ArchivePageProvider(reader, actionFactory, config,
+                    EasyMock.createNiceMock(TsvFileWriter.class));
+
+            Assert.assertTrue(provider.hasPage());
+            final List<Issue> first = Lists.newArrayList(provider.getPage());
+            Assert.assertEquals(1, first.size());
+            Assert.assertEquals(histories, first.get(0).changelog.histories.length);
+            Assert.assertTrue(provider.hasPage());
+            provider.getPage();
+            Assert.assertFalse(provider.hasPage());
+
+            provider.reset();
+            Assert.assertTrue(provider.hasPage());
+            provider.getPage();
+            Assert.assertFalse(provider.hasPage());
+
+            // Asking for more passes than were archived starts from the beginning again
+            provider.reset();
+            Assert.assertTrue(provider.hasPage());
+            Assert.assertEquals(histories, Lists.newArrayList(provider.getPage()).get(0).changelog.histories.length);
+        }
+    }
+
+    private static ObjectNode page(final JsonNode issue) {
+        final ObjectNode page = mapper.createObjectNode().put("total", 1).put("maxResults", 1);
+        page.putArray("issues").add(issue);
+        return page;
+    }
+}
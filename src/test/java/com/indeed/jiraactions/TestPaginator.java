@@ -50,6 +50,18 @@ public class TestPaginator {
 
     @Test
     public void testNewIssue() throws InterruptedException, IOException {
+        testNewIssue(1);
+    }
+
+    /**
+     * Building actions in parallel mustn't change what's written or when we stop.
+     */
+    @Test
+    public void testNewIssueBuiltInParallel() throws InterruptedException, IOException {
+        testNewIssue(4);
+    }
+
+    private void testNewIssue(final int buildThreads) throws InterruptedException, IOException {
         final Issue a1 = createIssue("A");
         final Issue b1 = createIssue("B");
 
@@ -105,6 +117,11 @@ public class TestPaginator {
         EasyMock.expect(provider.getPage()).andReturn(page2);
 
         EasyMock.expect(provider.getActions(c2)).andReturn(page2C);
+        if (buildThreads > 1) {
+            // The rest of the page may have been built before we saw we could stop
+            EasyMock.expect(provider.getActions(a2)).andReturn(page2A).times(0, 1);
+            EasyMock.expect(provider.getActions(b2)).andReturn(page2B).times(0, 1);
+        }
 
         provider.writeActions(EasyMock.eq(ImmutableList.of()));
         EasyMock.expectLastCall();
@@ -114,7 +131,7 @@ public class TestPaginator {
 
         mw.replayAll();
 
-        final Paginator paginator = new Paginator(provider, start, end, false, false, 0);
+        final Paginator paginator = new Paginator(provider, start, end, false, false, 0, buildThreads, 0);
         paginator.process();
 
         mw.verifyAll();
@@ -0,0 +1,122 @@
+package com.indeed.jiraactions;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.indeed.jiraactions.api.response.issue.Issue;
+import com.indeed.jiraactions.api.response.issue.fields.Field;
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestPaginatorPipeline {
+    private static final Action defaultAction = ImmutableProxy.createProxy(Action.class);
+    private final DateTime start = DateTime.now().minusYears(1);
+    private final DateTime end = DateTime.now();
+
+    /**
+     * Fetching, building and writing at once must write exactly what doing them in turn does, in the same order,
+     * and still stop the second pass at the first issue we've already seen.
+     */
+    @Test
+    public void testPipelineWritesTheSameAsSequential() throws InterruptedException {
+        final FakePageProvider sequential = new FakePageProvider();
+        new Paginator(sequential, start, end, true, false, 0).process();
+
+        final FakePageProvider pipelined = new FakePageProvider();
+        new Paginator(pipelined, start, end, true, false, 0, 4, 2).process();
+
+        Assert.assertEquals(sequential.written, pipelined.written);
+        Assert.assertEquals(2, sequential.resets);
+        Assert.assertEquals(2, pipelined.resets);
+        // Every issue's create action and its snapshot row
+        Assert.assertEquals(40, pipelined.written.size());
+    }
+
+    private class FakePageProvider implements PageProvider {
+        private final List<List<Issue>> pages = new ArrayList<>();
+        private final Map<String, List<Action>> actions = new HashMap<>();
+        private final List<String> written = Collections.synchronizedList(new ArrayList<>());
+        private int page = 0;
+        private int resets = 0;
+
+        private FakePageProvider() {
+            for (int p = 0; p < 5; p++) {
+                final List<Issue> issues = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    final int n = p * 4 + i;
+                    final Issue issue = new Issue();
+                    issue.key = "A-" + n;
+                    issue.fields = new Field();
+                    issue.fields.updated = end.minusHours(n + 1);
+                    issues.add(issue);
+                    actions.put(issue.key, Collections.singletonList(ImmutableAction.builder()
+                            .from(defaultAction)
+                            .action("create")
+                            .issuekey(issue.key)
+                            .timestamp(issue.fields.updated)
+                            .build()));
+                }
+                pages.add(issues);
+            }
+        }
+
+        @Override
+        public boolean hasPage() {
+            return page < pages.size();
+        }
+
+        @Override
+        public JsonNode getRawPage() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void reset() {
+            page = 0;
+            resets++;
+        }
+
+        @Override
+        public Issue processNode(final JsonNode issueNode) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterable<Issue> getPage() {
+            return pages.get(page++);
+        }
+
+        @Override
+        public List<Action> getActions(final Issue issue) throws IOException {
+            try {
+                // Finish out of order
+                Thread.sleep(4 - Integer.parseInt(issue.key.substring(2)) % 4);
+            } catch (final InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            return actions.get(issue.key);
+        }
+
+        @Override
+        public Action getJiraissues(final Action action, final Issue issue) {
+            return action;
+        }
+
+        @Override
+        public void writeActions(final List<Action> actions) {
+            actions.forEach(action -> written.add("action " + action.getIssuekey()));
+        }
+
+        @Override
+        public void writeIssue(final Action action) {
+            written.add("issue " + action.getIssuekey());
+        }
+    }
+}
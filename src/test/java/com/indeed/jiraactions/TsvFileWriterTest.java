@@ -0,0 +1,92 @@
+package com.indeed.jiraactions;
+
+import com.google.common.collect.ImmutableList;
+import com.indeed.jiraactions.api.customfields.CustomFieldDefinition;
+import com.indeed.jiraactions.api.response.issue.User;
+import org.easymock.EasyMock;
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+public class TsvFileWriterTest {
+    private static final Action defaultAction = ImmutableProxy.createProxy(Action.class);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGzipWithoutUpload() throws IOException {
+        final String indexName = new File(folder.getRoot(), "jiraactions").getPath();
+        writeWithoutUpload(indexName, false);
+
+        final List<String> lines = readGzip(new File(indexName + "_20180401.tsv.gz"));
+        Assert.assertEquals(4, lines.size());
+        Assert.assertTrue(lines.get(0).startsWith("issuekey\t"));
+        Assert.assertTrue(lines.get(3).startsWith("A-3\t"));
+        Assert.assertFalse(new File(indexName + "_20180401.tsv").exists());
+        // Days without any rows are still finished, so they hold just the header
+        Assert.assertEquals(1, readGzip(new File(indexName + "_20180402.tsv.gz")).size());
+    }
+
+    @Test
+    public void testGzipRetainingPlaintextWithoutUpload() throws IOException {
+        final String indexName = new File(folder.getRoot(), "jiraactions").getPath();
+        writeWithoutUpload(indexName, true);
+
+        final List<String> lines = readGzip(new File(indexName + "_20180401.tsv.gz"));
+        Assert.assertEquals(4, lines.size());
+        Assert.assertEquals(lines, Files.readAllLines(new File(indexName + "_20180401.tsv").toPath(), StandardCharsets.UTF_8));
+    }
+
+    private void writeWithoutUpload(final String indexName, final boolean retainTsv) throws IOException {
+        final JiraActionsIndexBuilderConfig config = EasyMock.createNiceMock(JiraActionsIndexBuilderConfig.class);
+        EasyMock.expect(config.getStartDate()).andReturn("2018-04-01").anyTimes();
+        EasyMock.expect(config.getEndDate()).andReturn("2018-04-03").anyTimes();
+        EasyMock.expect(config.getIndexName()).andReturn(indexName).anyTimes();
+        EasyMock.expect(config.getCustomFields()).andReturn(new CustomFieldDefinition[0]).anyTimes();
+        EasyMock.expect(config.getGzipTSV()).andReturn(true).anyTimes();
+        EasyMock.expect(config.getRetainTSV()).andReturn(retainTsv).anyTimes();
+        EasyMock.expect(config.getIuploadURL()).andReturn("").anyTimes();
+        EasyMock.replay(config);
+
+        final OutputFormatter outputFormatter = new OutputFormatter(OptionalInt.empty());
+        final TsvFileWriter writer = new TsvFileWriter(config, null, ImmutableList.of(), ImmutableList.of(), false,
+                outputFormatter, new CustomFieldOutputter(outputFormatter));
+        writer.createFileAndWriteHeaders();
+
+        final DateTime timestamp = JiraActionsUtil.parseDateTime("2018-04-01").plusHours(12);
+        for (int i = 1; i <= 3; i++) {
+            writer.writeActions(ImmutableList.of(ImmutableAction.builder()
+                    .from(defaultAction)
+                    .issuekey("A-" + i)
+                    .actor(User.INVALID_USER)
+                    .assignee(User.INVALID_USER)
+                    .reporter(User.INVALID_USER)
+                    .timestamp(timestamp.plusMinutes(i))
+                    .build()));
+        }
+        writer.uploadTsvFile(false);
+    }
+
+    private static List<String> readGzip(final File file) throws IOException {
+        try (final InputStream in = new GZIPInputStream(new FileInputStream(file));
+             final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+}
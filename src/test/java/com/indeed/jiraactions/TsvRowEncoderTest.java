@@ -0,0 +1,51 @@
+package com.indeed.jiraactions;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.stream.Collectors;
+
+public class TsvRowEncoderTest {
+    private static final Action defaultAction = ImmutableProxy.createProxy(Action.class);
+
+    @Test
+    public void testEscape() {
+        Assert.assertEquals("plain", TsvRowEncoder.escape("plain"));
+        Assert.assertEquals("a\\tb\\nc\\rd\\t", TsvRowEncoder.escape("a\tb\nc\rd\\t"));
+    }
+
+    @Test
+    public void testRowMatchesJoinedColumns() throws IOException {
+        final List<Long> longs = ImmutableList.of(0L, 7L, -42L, Long.MAX_VALUE, Long.MIN_VALUE);
+        final TSVSpecBuilder specBuilder = new TSVSpecBuilder(new OutputFormatter(OptionalInt.empty()), null)
+                .addColumn("summary", Action::getSummary);
+        for (int i = 0; i < longs.size(); i++) {
+            final long value = longs.get(i);
+            specBuilder.addLongColumn("long" + i, action -> value);
+        }
+        final List<TSVColumnSpec> columnSpecs = specBuilder.build();
+
+        final Action action = ImmutableAction.builder()
+                .from(defaultAction)
+                .summary("first line\r\nsecond\tline")
+                .build();
+
+        final TsvRowEncoder encoder = new TsvRowEncoder();
+        final StringWriter writer = new StringWriter();
+        encoder.writeRow(columnSpecs, action, writer);
+        encoder.writeRow(columnSpecs, action, writer);
+
+        final String expected = columnSpecs.stream()
+                .map(columnSpec -> columnSpec.getActionExtractor().apply(action))
+                .map(rawValue -> rawValue.replace("\t", "\\t"))
+                .map(rawValue -> rawValue.replace("\n", "\\n"))
+                .map(rawValue -> rawValue.replace("\r", "\\r"))
+                .collect(Collectors.joining("\t")) + System.lineSeparator();
+        Assert.assertEquals(expected + expected, writer.toString());
+    }
+}
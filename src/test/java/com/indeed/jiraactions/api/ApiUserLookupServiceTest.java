@@ -2,15 +2,26 @@ package com.indeed.jiraactions.api;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
+import com.indeed.jiraactions.JiraActionsIndexBuilderConfig;
 import com.indeed.jiraactions.api.response.issue.ImmutableUser;
 import com.indeed.jiraactions.api.response.issue.User;
-
+import org.easymock.EasyMock;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ApiUserLookupServiceTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void test() throws Exception {
         final JsonNode node = new ObjectMapper().readTree(new File("src/test/resources/example-user.json"));
@@ -23,4 +34,88 @@ public class ApiUserLookupServiceTest {
                 .build();
         Assert.assertEquals(expectedUser, user);
     }
+
+    @Test
+    public void testPrefetchLooksEachUserUpOnce() throws Exception {
+        final JiraActionsIndexBuilderConfig config = EasyMock.createNiceMock(JiraActionsIndexBuilderConfig.class);
+        EasyMock.expect(config.getJiraBaseURL()).andReturn("https://jira.example.com").anyTimes();
+        EasyMock.expect(config.getJiraUserLookupThreads()).andReturn(4).anyTimes();
+        EasyMock.replay(config);
+
+        final ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+        final ApiCaller apiCaller = EasyMock.createMock(ApiCaller.class);
+        EasyMock.expect(apiCaller.getJsonNode(EasyMock.anyObject(String.class))).andAnswer(() -> {
+            final String url = (String) EasyMock.getCurrentArguments()[0];
+            final String key = url.substring(url.indexOf("key=") + "key=".length());
+            requests.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            Thread.sleep(50);
+            return new ObjectMapper().createObjectNode()
+                    .put("key", key)
+                    .put("name", key)
+                    .put("displayName", "User " + key);
+        }).anyTimes();
+        EasyMock.replay(apiCaller);
+
+        final ApiUserLookupService service = new ApiUserLookupService(config, apiCaller);
+        final Thread concurrentLookup = new Thread(() -> service.getUser("bob"));
+        concurrentLookup.start();
+        service.prefetchUsers(Arrays.asList("alice", "bob", "carol", "", "alice"));
+        concurrentLookup.join();
+
+        Assert.assertEquals(3, service.numLookups());
+        Assert.assertEquals(ImmutableSet.of("alice", "bob", "carol"), requests.keySet());
+        for (final AtomicInteger count : requests.values()) {
+            Assert.assertEquals(1, count.get());
+        }
+        Assert.assertEquals("User carol", service.getUser("carol").getDisplayName());
+        Assert.assertEquals(3, requests.size());
+    }
+
+    @Test
+    public void testUserCacheAcrossRuns() throws Exception {
+        final File cacheFile = temporaryFolder.newFolder().toPath().resolve("users.json.gz").toFile();
+        final JsonNode johnDoe = new ObjectMapper().readTree(new File("src/test/resources/example-user.json"));
+
+        final ApiCaller firstApiCaller = EasyMock.createMock(ApiCaller.class);
+        EasyMock.expect(firstApiCaller.getJsonNode(EasyMock.anyObject(String.class))).andReturn(johnDoe).once();
+        EasyMock.expect(firstApiCaller.getJsonNode(EasyMock.anyObject(String.class))).andThrow(new IOException("not found")).once();
+        EasyMock.replay(firstApiCaller);
+
+        final ApiUserLookupService firstRun = new ApiUserLookupService(createCachedConfig(cacheFile, 24), firstApiCaller);
+        final User user = firstRun.getUser("johndoe");
+        Assert.assertEquals("Unknown User missing", firstRun.getUser("missing").getDisplayName());
+        firstRun.saveUserCache();
+        EasyMock.verify(firstApiCaller);
+
+        // A fresh entry is used without asking JIRA, and the fallback user wasn't cached
+        final ApiCaller secondApiCaller = EasyMock.createMock(ApiCaller.class);
+        EasyMock.expect(secondApiCaller.getJsonNode(EasyMock.anyObject(String.class))).andThrow(new IOException("not found")).once();
+        EasyMock.replay(secondApiCaller);
+
+        final ApiUserLookupService secondRun = new ApiUserLookupService(createCachedConfig(cacheFile, 24), secondApiCaller);
+        Assert.assertEquals(user, secondRun.getUser("johndoe"));
+        secondRun.getUser("missing");
+        Assert.assertEquals(1, secondRun.numLookups());
+        EasyMock.verify(secondApiCaller);
+
+        // A stale entry is still used, but refreshed for next time
+        final ApiCaller thirdApiCaller = EasyMock.createMock(ApiCaller.class);
+        EasyMock.expect(thirdApiCaller.getJsonNode(EasyMock.anyObject(String.class))).andReturn(johnDoe).once();
+        EasyMock.replay(thirdApiCaller);
+
+        final ApiUserLookupService thirdRun = new ApiUserLookupService(createCachedConfig(cacheFile, 0), thirdApiCaller);
+        Assert.assertEquals(user, thirdRun.getUser("johndoe"));
+        thirdRun.saveUserCache();
+        EasyMock.verify(thirdApiCaller);
+    }
+
+    private static JiraActionsIndexBuilderConfig createCachedConfig(final File cacheFile, final long ttlHours) {
+        final JiraActionsIndexBuilderConfig config = EasyMock.createNiceMock(JiraActionsIndexBuilderConfig.class);
+        EasyMock.expect(config.getJiraBaseURL()).andReturn("https://jira.example.com").anyTimes();
+        EasyMock.expect(config.getJiraUserLookupThreads()).andReturn(2).anyTimes();
+        EasyMock.expect(config.getUserCacheFile()).andReturn(cacheFile.getPath()).anyTimes();
+        EasyMock.expect(config.getUserCacheTtlHours()).andReturn(ttlHours).anyTimes();
+        EasyMock.replay(config);
+        return config;
+    }
 }
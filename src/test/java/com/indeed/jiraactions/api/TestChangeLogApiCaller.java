@@ -0,0 +1,161 @@
+package com.indeed.jiraactions.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.indeed.jiraactions.JiraActionsIndexBuilderConfig;
+import com.indeed.jiraactions.api.response.issue.Issue;
+import com.indeed.jiraactions.api.response.issue.changelog.ChangeLog;
+import com.indeed.jiraactions.api.response.issue.changelog.histories.History;
+import org.apache.http.client.HttpResponseException;
+import org.easymock.EasyMock;
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class TestChangeLogApiCaller {
+    private static final Pattern START_AT = Pattern.compile("startAt=(\\d+)");
+    private static final Pattern MAX_RESULTS = Pattern.compile("maxResults=(\\d+)");
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final DateTime FIRST = new DateTime(2018, 4, 1, 0, 0);
+
+    @Test
+    public void testCompletesTruncatedChangeLogs() throws Exception {
+        final int total = 250;
+        final int jiraMaxResults = 40;
+
+        final JiraActionsIndexBuilderConfig config = EasyMock.createNiceMock(JiraActionsIndexBuilderConfig.class);
+        EasyMock.expect(config.getJiraBaseURL()).andReturn("https://jira.example.com").anyTimes();
+        EasyMock.expect(config.getJiraChangeLogThreads()).andReturn(3).anyTimes();
+        EasyMock.replay(config);
+
+        final ApiCaller apiCaller = EasyMock.createMock(ApiCaller.class);
+        EasyMock.expect(apiCaller.get(EasyMock.anyObject(String.class), EasyMock.anyObject(ApiCaller.ResponseReader.class))).andAnswer(() -> {
+            final String url = (String) EasyMock.getCurrentArguments()[0];
+            final ApiCaller.ResponseReader<?> reader = (ApiCaller.ResponseReader<?>) EasyMock.getCurrentArguments()[1];
+            Assert.assertTrue(url.startsWith("https://jira.example.com/rest/api/2/issue/LONG-1/changelog?"));
+
+            final int startAt = getParam(START_AT, url);
+            final int maxResults = Math.min(getParam(MAX_RESULTS, url), jiraMaxResults);
+            final ObjectNode page = mapper.createObjectNode();
+            page.put("startAt", startAt).put("maxResults", maxResults).put("total", total);
+            final ArrayNode values = page.putArray("values");
+            for (int i = startAt; i < Math.min(startAt + maxResults, total); i++) {
+                values.add(createHistory(i));
+            }
+            return reader.read(new ByteArrayInputStream(mapper.writeValueAsBytes(page)));
+        }).anyTimes();
+        EasyMock.replay(apiCaller);
+
+        final Issue truncated = createIssue("LONG-1", total, 20);
+        final Issue complete = createIssue("SHORT-1", 5, 5);
+
+        new ChangeLogApiCaller(config, apiCaller).completeChangeLogs(Arrays.asList(truncated, complete));
+
+        Assert.assertFalse(truncated.changelog.isTruncated());
+        Assert.assertEquals(total, truncated.changelog.histories.length);
+        for (int i = 0; i < total; i++) {
+            Assert.assertEquals(FIRST.plusMinutes(i).getMillis(), truncated.changelog.histories[i].created.getMillis());
+        }
+        Assert.assertEquals(5, complete.changelog.histories.length);
+    }
+
+    @Test
+    public void testNotFoundOnlySkipsThatIssue() throws Exception {
+        final ChangeLogApiCaller changeLogApiCaller = new ChangeLogApiCaller(createConfig(), createApiCaller("GONE-", 50));
+
+        final Issue gone = createIssue("GONE-1", 50, 20);
+        changeLogApiCaller.completeChangeLogs(Arrays.asList(gone));
+        Assert.assertTrue(gone.changelog.isTruncated());
+
+        final Issue later = createIssue("LONG-1", 50, 20);
+        changeLogApiCaller.completeChangeLogs(Arrays.asList(later));
+        Assert.assertFalse(later.changelog.isTruncated());
+        Assert.assertEquals(50, later.changelog.histories.length);
+    }
+
+    @Test
+    public void testGivesUpWhenEndpointIsMissing() throws Exception {
+        final ChangeLogApiCaller changeLogApiCaller = new ChangeLogApiCaller(createConfig(), createApiCaller("GONE-", 50));
+
+        final List<Issue> issues = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            issues.add(createIssue("GONE-" + i, 50, 20));
+        }
+        changeLogApiCaller.completeChangeLogs(issues);
+
+        // Once enough have 404'd without any being found, we stop asking, even for one JIRA would have answered
+        final Issue later = createIssue("LONG-1", 50, 20);
+        changeLogApiCaller.completeChangeLogs(Arrays.asList(later));
+        Assert.assertTrue(later.changelog.isTruncated());
+    }
+
+    private static JiraActionsIndexBuilderConfig createConfig() {
+        final JiraActionsIndexBuilderConfig config = EasyMock.createNiceMock(JiraActionsIndexBuilderConfig.class);
+        EasyMock.expect(config.getJiraBaseURL()).andReturn("https://jira.example.com").anyTimes();
+        EasyMock.expect(config.getJiraChangeLogThreads()).andReturn(3).anyTimes();
+        EasyMock.replay(config);
+        return config;
+    }
+
+    /**
+     * Answers changelog requests for issues with {@code total} histories, except those whose key starts with
+     * {@code notFoundPrefix}, which 404.
+     */
+    private static ApiCaller createApiCaller(final String notFoundPrefix, final int total) throws Exception {
+        final ApiCaller apiCaller = EasyMock.createMock(ApiCaller.class);
+        EasyMock.expect(apiCaller.get(EasyMock.anyObject(String.class), EasyMock.anyObject(ApiCaller.ResponseReader.class))).andAnswer(() -> {
+            final String url = (String) EasyMock.getCurrentArguments()[0];
+            final ApiCaller.ResponseReader<?> reader = (ApiCaller.ResponseReader<?>) EasyMock.getCurrentArguments()[1];
+            if (url.startsWith("https://jira.example.com/rest/api/2/issue/" + notFoundPrefix)) {
+                throw new HttpResponseException(404, "Not Found");
+            }
+
+            final int startAt = getParam(START_AT, url);
+            final int maxResults = getParam(MAX_RESULTS, url);
+            final ObjectNode page = mapper.createObjectNode();
+            page.put("startAt", startAt).put("maxResults", maxResults).put("total", total);
+            final ArrayNode values = page.putArray("values");
+            for (int i = startAt; i < Math.min(startAt + maxResults, total); i++) {
+                values.add(createHistory(i));
+            }
+            return reader.read(new ByteArrayInputStream(mapper.writeValueAsBytes(page)));
+        }).anyTimes();
+        EasyMock.replay(apiCaller);
+        return apiCaller;
+    }
+
+    private static Issue createIssue(final String key, final int total, final int returned) throws Exception {
+        final Issue issue = new Issue();
+        issue.key = key;
+        issue.changelog = new ChangeLog();
+        issue.changelog.total = total;
+        issue.changelog.maxResults = returned;
+        issue.changelog.histories = new History[returned];
+        for (int i = 0; i < returned; i++) {
+            issue.changelog.histories[i] = mapper.treeToValue(createHistory(i), History.class);
+        }
+        return issue;
+    }
+
+    private static ObjectNode createHistory(final int i) {
+        final ObjectNode history = mapper.createObjectNode();
+        history.put("id", String.valueOf(i));
+        history.put("created", FIRST.plusMinutes(i).toString());
+        history.putArray("items");
+        return history;
+    }
+
+    private static int getParam(final Pattern pattern, final String url) {
+        final Matcher matcher = pattern.matcher(url);
+        Assert.assertTrue(matcher.find());
+        return Integer.parseInt(matcher.group(1));
+    }
+}
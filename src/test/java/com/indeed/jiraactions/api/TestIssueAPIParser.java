@@ -0,0 +1,76 @@
+package com.indeed.jiraactions.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableSet;
+import com.indeed.jiraactions.api.response.issue.Issue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Set;
+
+public class TestIssueAPIParser {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testStreamingMatchesTree() throws IOException {
+        final JsonNode issueNode;
+        try (final InputStream stream = getClass().getResourceAsStream("/ENGPLANS-10.json")) {
+            Assert.assertNotNull(stream);
+            issueNode = mapper.readTree(stream);
+        }
+
+        final ObjectNode page = mapper.createObjectNode();
+        page.put("expand", "schema,names");
+        page.putObject("names").put("summary", "Summary");
+        page.put("total", 42);
+        page.putArray("issues")
+                .add(issueNode)
+                .add(mapper.createObjectNode().put("key", "BROKEN-1").put("fields", "not an object"))
+                .add(issueNode);
+
+        final SearchResult result = IssueAPIParser.parseSearchResult(new ByteArrayInputStream(mapper.writeValueAsBytes(page)));
+        Assert.assertEquals(42, result.getTotal());
+        Assert.assertEquals(2, result.getIssues().size());
+
+        final Issue expected = IssueAPIParser.getObject(issueNode);
+        Assert.assertNotNull(expected);
+        for (final Issue issue : result.getIssues()) {
+            Assert.assertEquals(expected.key, issue.key);
+            Assert.assertEquals(expected.initialValue("component"), issue.initialValue("component"));
+            Assert.assertEquals(expected.changelog.histories.length, issue.changelog.histories.length);
+        }
+    }
+
+    @Test
+    public void testOnlyConfiguredCustomFieldsKept() throws IOException {
+        final JsonNode issueNode;
+        try (final InputStream stream = getClass().getResourceAsStream("/ENGPLANS-10.json")) {
+            issueNode = mapper.readTree(stream);
+        }
+        final Set<String> customFieldIds = ImmutableSet.of("customfield_12090", "customfield_99999");
+
+        final ObjectNode page = mapper.createObjectNode();
+        page.put("total", 1);
+        page.putArray("issues").add(issueNode);
+        final Issue streamed = IssueAPIParser.parseSearchResult(
+                new ByteArrayInputStream(mapper.writeValueAsBytes(page)), customFieldIds).getIssues().get(0);
+        final Issue bound = IssueAPIParser.getObject(issueNode, customFieldIds);
+        final Issue unfiltered = IssueAPIParser.getObject(issueNode);
+        Assert.assertNotNull(bound);
+        Assert.assertNotNull(unfiltered);
+
+        for (final Issue issue : Arrays.asList(streamed, bound)) {
+            Assert.assertEquals(customFieldIds, issue.fields.otherProperties.keySet());
+            Assert.assertEquals(issueNode.get("fields").get("customfield_12090"), issue.fields.getCustomField("customfield_12090"));
+            Assert.assertNull(issue.fields.getCustomField("customfield_10072"));
+            Assert.assertEquals(unfiltered.fields.summary, issue.fields.summary);
+        }
+        Assert.assertNotNull(unfiltered.fields.getCustomField("customfield_10072"));
+    }
+}
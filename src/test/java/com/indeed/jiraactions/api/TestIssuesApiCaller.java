@@ -1,10 +1,39 @@
 package com.indeed.jiraactions.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.indeed.jiraactions.JiraActionsIndexBuilderConfig;
 import com.indeed.jiraactions.JiraActionsUtil;
+import com.indeed.jiraactions.api.batch.BatchSizeMetrics;
+import org.easymock.EasyMock;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public class TestIssuesApiCaller {
+    private static final Pattern START_AT = Pattern.compile("startAt=(\\d+)");
+    private static final Pattern MAX_RESULTS = Pattern.compile("maxResults=(\\d+)");
+    private static final Pattern JQL = Pattern.compile("jql=([^&]+)");
+    private static final Pattern UPDATED_FROM = Pattern.compile("updatedDate>=\"([^\"]+)\"");
+    private static final Pattern UPDATED_TO = Pattern.compile("updatedDate<\"([^\"]+)\"");
+    private static final Pattern EXCLUDED_KEYS = Pattern.compile("issuekey NOT IN \\(([^)]+)\\)");
+    private static final DateTimeFormatter JIRA_TIME = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm")
+            .withZone(IssuesAPICaller.JIRA_TIME_ZONE);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
     @Test
     public void testJiraFormatter() {
         // Hack to account for when Austin is in Ramses time
@@ -13,4 +42,260 @@ public class TestIssuesApiCaller {
         }
         Assert.assertEquals("2018-04-01 01:00", IssuesAPICaller.getDateStringInJiraTime("2018-04-01"));
     }
+
+    @Test
+    public void testPrefetchDeliversPagesInOrder() throws Exception {
+        final int total = 23;
+        final JiraActionsIndexBuilderConfig config = createConfig(2, 4);
+        final ApiCaller apiCaller = EasyMock.createMock(ApiCaller.class);
+        EasyMock.expect(apiCaller.getJsonNode(EasyMock.anyObject(String.class))).andAnswer(() -> {
+            final String url = (String) EasyMock.getCurrentArguments()[0];
+            if (url.contains("maxResults=0")) {
+                return createPage(0, 0, total);
+            }
+            return createPage(getParam(START_AT, url), getParam(MAX_RESULTS, url), total);
+        }).anyTimes();
+        EasyMock.replay(apiCaller);
+
+        final IssuesAPICaller issuesAPICaller = new IssuesAPICaller(config, apiCaller, false);
+        Assert.assertEquals(total, issuesAPICaller.setNumTotal());
+
+        for (int pass = 0; pass < 2; pass++) {
+            final List<String> keys = new ArrayList<>();
+            while (issuesAPICaller.currentPageExist()) {
+                for (final JsonNode issue : issuesAPICaller.getIssuesNodeWithBackoff()) {
+                    keys.add(issue.get("key").textValue());
+                }
+            }
+            Assert.assertEquals(total, keys.size());
+            for (int i = 0; i < total; i++) {
+                Assert.assertEquals("ISSUE-" + i, keys.get(i));
+            }
+            issuesAPICaller.reset();
+        }
+    }
+
+    @Test
+    public void testBatchSizeMetricsPerPass() throws Exception {
+        final int total = 23;
+        final JiraActionsIndexBuilderConfig config = createConfig(2, 1);
+        final ApiCaller apiCaller = EasyMock.createMock(ApiCaller.class);
+        EasyMock.expect(apiCaller.getJsonNode(EasyMock.anyObject(String.class))).andAnswer(() -> {
+            final String url = (String) EasyMock.getCurrentArguments()[0];
+            if (url.contains("maxResults=0")) {
+                return createPage(0, 0, total);
+            }
+            return createPage(getParam(START_AT, url), getParam(MAX_RESULTS, url), total);
+        }).anyTimes();
+        EasyMock.replay(apiCaller);
+
+        final IssuesAPICaller issuesAPICaller = new IssuesAPICaller(config, apiCaller, false);
+        issuesAPICaller.setNumTotal();
+
+        int requests = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            while (issuesAPICaller.currentPageExist()) {
+                issuesAPICaller.getIssuesNodeWithBackoff();
+            }
+            final BatchSizeMetrics passMetrics = issuesAPICaller.getPassBatchSizeMetrics();
+            Assert.assertTrue(passMetrics.getRequests() > 0);
+            Assert.assertEquals(total, passMetrics.getIssues());
+            // The batch size grew to its cap during the first pass, and the second starts from there
+            Assert.assertEquals(pass == 0 ? 2 : 4, passMetrics.getMinBatchSize());
+            Assert.assertEquals(4, passMetrics.getMaxBatchSize());
+            requests += passMetrics.getRequests();
+
+            issuesAPICaller.reset();
+            Assert.assertEquals(0, issuesAPICaller.getPassBatchSizeMetrics().getRequests());
+            Assert.assertEquals(requests, issuesAPICaller.getBatchSizeMetrics().getRequests());
+        }
+        Assert.assertEquals(2 * total, issuesAPICaller.getBatchSizeMetrics().getIssues());
+    }
+
+    @Test
+    public void testPagesCappedByJiraAreNotSkipped() throws Exception {
+        final int total = 23;
+        final int cap = 3;
+        final JiraActionsIndexBuilderConfig config = createConfig(5, 3);
+        final ApiCaller apiCaller = EasyMock.createMock(ApiCaller.class);
+        EasyMock.expect(apiCaller.getJsonNode(EasyMock.anyObject(String.class))).andAnswer(() -> {
+            final String url = (String) EasyMock.getCurrentArguments()[0];
+            if (url.contains("maxResults=0")) {
+                return createPage(0, 0, total);
+            }
+            final ObjectNode page = (ObjectNode) createPage(getParam(START_AT, url), Math.min(getParam(MAX_RESULTS, url), cap), total);
+            page.put("maxResults", Math.min(getParam(MAX_RESULTS, url), cap));
+            return page;
+        }).anyTimes();
+        EasyMock.replay(apiCaller);
+
+        final IssuesAPICaller issuesAPICaller = new IssuesAPICaller(config, apiCaller, false);
+        issuesAPICaller.setNumTotal();
+
+        final List<String> keys = new ArrayList<>();
+        while (issuesAPICaller.currentPageExist()) {
+            for (final JsonNode issue : issuesAPICaller.getIssuesNodeWithBackoff()) {
+                keys.add(issue.get("key").textValue());
+            }
+        }
+        Assert.assertEquals(total, keys.size());
+        for (int i = 0; i < total; i++) {
+            Assert.assertEquals("ISSUE-" + i, keys.get(i));
+        }
+    }
+
+    @Test
+    public void testPartitionedCrawlKeepsOrder() throws Exception {
+        // ISSUE-0 is the most recently updated. ISSUE-5 through ISSUE-11 share a minute, more than a partition holds.
+        final DateTime newest = JIRA_TIME.parseDateTime("2018-04-02 00:00");
+        final List<DateTime> updated = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            final int minutes = i < 5 ? i * 37 : (i < 12 ? 5 * 37 : i * 37);
+            updated.add(newest.minusMinutes(minutes));
+        }
+
+        final JiraActionsIndexBuilderConfig config = createConfig(2, 3, 5, false);
+        final ApiCaller apiCaller = EasyMock.createMock(ApiCaller.class);
+        final int[] probes = { 0 };
+        EasyMock.expect(apiCaller.getJsonNode(EasyMock.anyObject(String.class))).andAnswer(() -> {
+            final String url = (String) EasyMock.getCurrentArguments()[0];
+            if (url.contains("maxResults=0")) {
+                probes[0]++;
+            }
+            return search(url, updated);
+        }).anyTimes();
+        EasyMock.replay(apiCaller);
+
+        final IssuesAPICaller issuesAPICaller = new IssuesAPICaller(config, apiCaller, false);
+        Assert.assertEquals(updated.size(), issuesAPICaller.setNumTotal());
+        Assert.assertTrue(probes[0] > 1);
+
+        final List<String> keys = new ArrayList<>();
+        while (issuesAPICaller.currentPageExist()) {
+            for (final JsonNode issue : issuesAPICaller.getIssuesNodeWithBackoff()) {
+                keys.add(issue.get("key").textValue());
+            }
+        }
+        Assert.assertEquals(updated.size(), keys.size());
+        for (int i = 0; i < updated.size(); i++) {
+            Assert.assertEquals("ISSUE-" + i, keys.get(i));
+        }
+    }
+
+    @Test
+    public void testKeysetPaginationIgnoresMovedIssues() throws Exception {
+        final DateTime newest = JIRA_TIME.parseDateTime("2018-04-02 00:00");
+        final List<DateTime> updated = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            final int minutes = i < 5 ? i * 37 : (i < 12 ? 5 * 37 : i * 37);
+            updated.add(newest.minusMinutes(minutes).plusSeconds(30 - i));
+        }
+
+        final JiraActionsIndexBuilderConfig config = createConfig(2, 4, 0, true);
+        final ApiCaller apiCaller = EasyMock.createMock(ApiCaller.class);
+        final int[] requests = { 0 };
+        EasyMock.expect(apiCaller.getJsonNode(EasyMock.anyObject(String.class))).andAnswer(() -> {
+            final String url = (String) EasyMock.getCurrentArguments()[0];
+            if (++requests[0] == 5) {
+                // Someone updates an issue we haven't reached yet, which moves it to the front. With offsets, this
+                // would shift everything between it and us back a spot and we'd see one of them twice.
+                updated.set(15, newest.plusMinutes(10));
+            }
+            return search(url, updated);
+        }).anyTimes();
+        EasyMock.replay(apiCaller);
+
+        final IssuesAPICaller issuesAPICaller = new IssuesAPICaller(config, apiCaller, false);
+        Assert.assertEquals(updated.size(), issuesAPICaller.setNumTotal());
+
+        final List<String> keys = new ArrayList<>();
+        while (issuesAPICaller.currentPageExist()) {
+            for (final JsonNode issue : issuesAPICaller.getIssuesNodeWithBackoff()) {
+                keys.add(issue.get("key").textValue());
+            }
+        }
+        // The moved issue is newer than where we are now, so it's left for the next pass
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < updated.size(); i++) {
+            if (i != 15) {
+                expected.add("ISSUE-" + i);
+            }
+        }
+        Assert.assertEquals(expected, keys);
+    }
+
+    /**
+     * Answers a search the way JIRA would for issues ISSUE-0, ISSUE-1, ... last updated at the given times, honoring
+     * the updatedDate bounds and excluded keys in the JQL.
+     */
+    private static JsonNode search(final String url, final List<DateTime> updated) throws Exception {
+        final String jql = URLDecoder.decode(getMatch(JQL, url), "UTF-8");
+        final DateTime from = JIRA_TIME.parseDateTime(getMatch(UPDATED_FROM, jql));
+        final Matcher to = UPDATED_TO.matcher(jql);
+        final DateTime until = to.find() ? JIRA_TIME.parseDateTime(to.group(1)) : null;
+        final Matcher excluded = EXCLUDED_KEYS.matcher(jql);
+        final List<String> excludedKeys = excluded.find() ? Arrays.asList(excluded.group(1).split(",")) : Collections.emptyList();
+
+        final List<Integer> matching = new ArrayList<>();
+        for (int i = 0; i < updated.size(); i++) {
+            if (!updated.get(i).isBefore(from) && (until == null || updated.get(i).isBefore(until))
+                    && !excludedKeys.contains("ISSUE-" + i)) {
+                matching.add(i);
+            }
+        }
+        matching.sort(Comparator.comparing((Integer i) -> updated.get(i)).reversed().thenComparing(i -> i));
+
+        final ObjectNode page = mapper.createObjectNode();
+        page.put("total", matching.size());
+        final ArrayNode issues = page.putArray("issues");
+        if (url.contains("maxResults=0")) {
+            return page;
+        }
+        final int startAt = getParam(START_AT, url);
+        for (int i = startAt; i < Math.min(startAt + getParam(MAX_RESULTS, url), matching.size()); i++) {
+            final ObjectNode issue = issues.addObject().put("key", "ISSUE-" + matching.get(i));
+            issue.putObject("fields").put("updated", updated.get(matching.get(i)).toString());
+        }
+        return page;
+    }
+
+    private static JiraActionsIndexBuilderConfig createConfig(final int batchSize, final int prefetchDepth) {
+        return createConfig(batchSize, prefetchDepth, 0, false);
+    }
+
+    private static JiraActionsIndexBuilderConfig createConfig(final int batchSize, final int prefetchDepth,
+                                                              final int partitionTargetSize, final boolean keyset) {
+        final JiraActionsIndexBuilderConfig config = EasyMock.createNiceMock(JiraActionsIndexBuilderConfig.class);
+        EasyMock.expect(config.getJiraBaseURL()).andReturn("https://jira.example.com").anyTimes();
+        EasyMock.expect(config.getStartDate()).andReturn("2018-04-01").anyTimes();
+        EasyMock.expect(config.getEndDate()).andReturn("2018-04-02").anyTimes();
+        EasyMock.expect(config.getJiraFields()).andReturn("key").anyTimes();
+        EasyMock.expect(config.getJiraExpand()).andReturn("changelog").anyTimes();
+        EasyMock.expect(config.getJiraBatchSize()).andReturn(batchSize).anyTimes();
+        EasyMock.expect(config.getJiraPrefetchDepth()).andReturn(prefetchDepth).anyTimes();
+        EasyMock.expect(config.getJiraPartitionTargetSize()).andReturn(partitionTargetSize).anyTimes();
+        EasyMock.expect(config.getJiraKeysetPagination()).andReturn(keyset).anyTimes();
+        EasyMock.replay(config);
+        return config;
+    }
+
+    private static int getParam(final Pattern pattern, final String url) {
+        return Integer.parseInt(getMatch(pattern, url));
+    }
+
+    private static String getMatch(final Pattern pattern, final String input) {
+        final Matcher matcher = pattern.matcher(input);
+        Assert.assertTrue(matcher.find());
+        return matcher.group(1);
+    }
+
+    private static JsonNode createPage(final int startAt, final int maxResults, final int total) {
+        final ObjectNode page = mapper.createObjectNode();
+        page.put("total", total);
+        final ArrayNode issues = page.putArray("issues");
+        for (int i = startAt; i < Math.min(startAt + maxResults, total); i++) {
+            issues.addObject().put("key", "ISSUE-" + i);
+        }
+        return page;
+    }
 }
@@ -0,0 +1,129 @@
+package com.indeed.jiraactions.api;
+
+import com.google.common.base.Ticker;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestJiraRateLimiter {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testLimitsToRate() {
+        final FakeTicker ticker = new FakeTicker();
+        final JiraRateLimiter limiter = new JiraRateLimiter(2, ticker);
+
+        // The bucket starts full, then hands out a token every half second
+        Assert.assertEquals(0, limiter.reserve());
+        Assert.assertEquals(0, limiter.reserve());
+        Assert.assertEquals(SECOND / 2, limiter.reserve());
+        Assert.assertEquals(SECOND, limiter.reserve());
+
+        ticker.advance(10 * SECOND);
+        Assert.assertEquals(0, limiter.reserve());
+    }
+
+    @Test
+    public void testUnlimitedOnlyWaitsWhenThrottled() {
+        final FakeTicker ticker = new FakeTicker();
+        final JiraRateLimiter limiter = new JiraRateLimiter(0, ticker);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(0, limiter.reserve());
+        }
+
+        // After the pause, we go on at half the 100 requests per second we were making when throttled
+        Assert.assertEquals(3000, limiter.onThrottled(throttled("3"), 0));
+        Assert.assertEquals(3 * SECOND + SECOND / 50, limiter.reserve());
+        ticker.advance(4 * SECOND);
+        Assert.assertEquals(0, limiter.reserve());
+    }
+
+    @Test
+    public void testUnlimitedSlowsDownAndRecovers() {
+        final FakeTicker ticker = new FakeTicker();
+        final JiraRateLimiter limiter = new JiraRateLimiter(0, ticker);
+        Assert.assertTrue(Double.isInfinite(limiter.getRate()));
+
+        // 20 requests per second for a while
+        for (int i = 0; i < 400; i++) {
+            Assert.assertEquals(0, limiter.reserve());
+            ticker.advance(SECOND / 20);
+        }
+
+        limiter.onThrottled(throttled(null), 0);
+        Assert.assertEquals(10, limiter.getRate(), 0.5);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.onSuccess();
+        }
+        Assert.assertEquals(14, limiter.getRate(), 0.5);
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess();
+        }
+        Assert.assertEquals(20, limiter.getRate(), 0.5);
+    }
+
+    @Test
+    public void testThrottlingSlowsDownAndRecovers() {
+        final FakeTicker ticker = new FakeTicker();
+        final JiraRateLimiter limiter = new JiraRateLimiter(10, ticker);
+
+        Assert.assertEquals(1000, limiter.onThrottled(throttled(null), 0));
+        Assert.assertEquals(2000, limiter.onThrottled(throttled(null), 1));
+        Assert.assertEquals(2.5, limiter.getRate(), 0.001);
+
+        // Everyone waits for the pause, then for a token at the lower rate
+        Assert.assertEquals(2 * SECOND + SECOND * 4 / 10, limiter.reserve());
+
+        for (int i = 0; i < 10; i++) {
+            limiter.onSuccess();
+        }
+        Assert.assertEquals(4.5, limiter.getRate(), 0.001);
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess();
+        }
+        Assert.assertEquals(10, limiter.getRate(), 0.001);
+    }
+
+    @Test
+    public void testRateLimitHeadersLowerCeiling() {
+        final FakeTicker ticker = new FakeTicker();
+        final JiraRateLimiter limiter = new JiraRateLimiter(0, ticker);
+
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.addHeader("X-RateLimit-FillRate", "10");
+        response.addHeader("X-RateLimit-Interval-Seconds", "5");
+        limiter.onResponse(response);
+        Assert.assertEquals(2, limiter.getRate(), 0.001);
+
+        ticker.advance(SECOND);
+        Assert.assertEquals(0, limiter.reserve());
+        Assert.assertEquals(0, limiter.reserve());
+        Assert.assertEquals(SECOND / 2, limiter.reserve());
+    }
+
+    private static HttpResponse throttled(final String retryAfter) {
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 429, "Too Many Requests");
+        if (retryAfter != null) {
+            response.addHeader("Retry-After", retryAfter);
+        }
+        return response;
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos = 0;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(final long delta) {
+            nanos += delta;
+        }
+    }
+}
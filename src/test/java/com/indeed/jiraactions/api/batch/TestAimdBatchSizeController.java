@@ -0,0 +1,54 @@
+package com.indeed.jiraactions.api.batch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestAimdBatchSizeController {
+    @Test
+    public void testGrowsPastDefaultWhenFast() {
+        final AimdBatchSizeController controller = new AimdBatchSizeController(10, 100, 1000, 0);
+        for (int i = 0; i < 50; i++) {
+            final int batchSize = controller.getBatchSize();
+            controller.onSuccess(batchSize, batchSize, batchSize * 5, -1); // 5 ms per issue
+        }
+        Assert.assertTrue(controller.getBatchSize() > 20);
+        Assert.assertTrue(controller.getBatchSize() <= 100);
+    }
+
+    @Test
+    public void testStopsGrowingAtTargetLatency() {
+        final AimdBatchSizeController controller = new AimdBatchSizeController(10, 1000, 1000, 0);
+        for (int i = 0; i < 200; i++) {
+            final int batchSize = controller.getBatchSize();
+            controller.onSuccess(batchSize, batchSize, batchSize * 20, -1); // 20 ms per issue, so 50 fits in 1s
+        }
+        Assert.assertTrue(controller.getBatchSize() <= 50);
+        Assert.assertTrue(controller.getBatchSize() >= 40);
+    }
+
+    @Test
+    public void testShrinksWhenSlow() {
+        final AimdBatchSizeController controller = new AimdBatchSizeController(40, 100, 1000, 0);
+        controller.onSuccess(40, 40, 4000, -1);
+        Assert.assertEquals(20, controller.getBatchSize());
+        controller.onSuccess(20, 20, 1250, -1);
+        Assert.assertEquals(16, controller.getBatchSize());
+    }
+
+    @Test
+    public void testFailureAndLimits() {
+        final AimdBatchSizeController controller = new AimdBatchSizeController(40, 100, 1000, 10_000);
+        controller.onFailure(40, 30_000);
+        Assert.assertEquals(10, controller.getBatchSize());
+
+        controller.onSuccess(10, 10, 100, 5_000); // 500 bytes per issue, so at most 20 fit in 10,000 bytes
+        for (int i = 0; i < 20; i++) {
+            final int batchSize = controller.getBatchSize();
+            controller.onSuccess(batchSize, batchSize, batchSize * 10, batchSize * 500);
+        }
+        Assert.assertEquals(20, controller.getBatchSize());
+
+        controller.limitTo(5);
+        Assert.assertEquals(5, controller.getBatchSize());
+    }
+}
@@ -18,6 +18,21 @@ public class TestCustomFieldApiParser {
                 .alternateNames("T-Shirt Size Estimate")
                 .build();
 
-        Assert.assertArrayEquals(new String[] {"issue-size-estimate", "t-shirt-size-estimate"}, CustomFieldApiParser.getItemLabels(definition));
+        Assert.assertArrayEquals(new String[] {"issue-size-estimate", "t-shirt-size-estimate"}, definition.getItemLabels());
+    }
+
+    @Test
+    public void testSplit() {
+        final CustomFieldDefinition definition = ImmutableCustomFieldDefinition.builder()
+                .name("Sprint")
+                .customFieldId("customfield_10000")
+                .imhotepFieldName("sprint")
+                .split(CustomFieldDefinition.SplitRule.NON_NUMBER)
+                .separator("|")
+                .build();
+
+        Assert.assertTrue(definition.isSplit());
+        Assert.assertEquals("12, 34;56".replaceAll("\\D+", "|"), definition.split("12, 34;56"));
+        Assert.assertFalse(ImmutableCustomFieldDefinition.copyOf(definition).withSeparator("").isSplit());
     }
 }
@@ -0,0 +1,54 @@
+package com.indeed.jiraactions.api.response.issue.changelog.histories;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.TreeSet;
+
+public class TestHistory {
+    private static Item item(final String field, final String toString, final boolean customField) {
+        final Item item = new Item();
+        item.setField(field);
+        item.toString = toString;
+        item.customField = customField;
+        return item;
+    }
+
+    @Test
+    public void testLookups() {
+        final Item status = item("status", "Closed", false);
+        final Item customStatus = item("status", "Custom", true);
+        final Item emptyLabel = item("labels", "", false);
+        final Item label = item("labels", "a b", false);
+        final History history = new History();
+        history.items = new Item[] { customStatus, emptyLabel, status, label };
+
+        Assert.assertTrue(history.itemExist("status"));
+        Assert.assertFalse(history.itemExist("resolution"));
+        Assert.assertSame(status, history.getItem("status", false));
+        Assert.assertSame(customStatus, history.getItem("status", true));
+        Assert.assertEquals("Closed", history.getItemLastValue("status"));
+        Assert.assertEquals(Arrays.asList(emptyLabel, label), history.getAllItems("labels"));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("status", "labels")),
+                new HashSet<>(Arrays.asList(history.getChangedFields().split(" "))));
+    }
+
+    @Test
+    public void testFirstItemWithValueAcrossFields() {
+        final Item emptyStatus = item("status", "", false);
+        final Item label = item("labels", "a b", false);
+        final Item secondStatus = item("status", "Closed", false);
+        final History history = new History();
+        history.items = new Item[] { emptyStatus, label, secondStatus };
+
+        Assert.assertSame(label, history.getItem(false, "status", "labels"));
+
+        history.items = new Item[] { emptyStatus, item("labels", null, false) };
+        Assert.assertSame(history.items[1], history.getItem(false, "status", "labels"));
+        Assert.assertNull(history.getItem(false, "resolution"));
+        Assert.assertEquals("labels status", String.join(" ", new TreeSet<>(
+                Arrays.asList(history.getChangedFields().split(" ")))));
+    }
+}
@@ -0,0 +1,65 @@
+package com.indeed.jiraactions.archive;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class TestPageArchive {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final File dir = new File(temporaryFolder.getRoot(), "jiraactions");
+        try (final PageArchiveWriter writer = new PageArchiveWriter(dir)) {
+            writer.writeSearchPage(0, bytes("{\"issues\": [1]}"));
+            writer.writeChangeLogPage(0, "A-1", bytes("{\"values\": []}"));
+            writer.writeSearchPage(1, bytes("{\"issues\": [2]}"));
+            writer.writeLinkTypes(ImmutableList.of("blocks", "is blocked by"));
+            writer.writeStatusTypes(ImmutableList.of("Open", "Closed"));
+        }
+
+        try (final PageArchiveReader reader = new PageArchiveReader(dir)) {
+            final List<ArchiveEntry> entries = reader.getEntries();
+            Assert.assertEquals(3, entries.size());
+
+            Assert.assertEquals(ArchiveEntry.Kind.SEARCH, entries.get(0).getKind());
+            Assert.assertEquals(0, entries.get(0).getPass());
+            Assert.assertEquals("{\"issues\": [1]}", string(reader.read(entries.get(0))));
+
+            Assert.assertEquals(ArchiveEntry.Kind.CHANGELOG, entries.get(1).getKind());
+            Assert.assertEquals("A-1", entries.get(1).getKey());
+            Assert.assertEquals("{\"values\": []}", string(reader.read(entries.get(1))));
+
+            Assert.assertEquals(1, entries.get(2).getPass());
+            Assert.assertEquals("{\"issues\": [2]}", string(reader.read(entries.get(2))));
+            // Out of order reads work too
+            Assert.assertEquals("{\"issues\": [1]}", string(reader.read(entries.get(0))));
+
+            Assert.assertEquals(ImmutableList.of("blocks", "is blocked by"), reader.readLinkTypes());
+            Assert.assertEquals(ImmutableList.of("Open", "Closed"), reader.readStatusTypes());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testWontOverwrite() throws IOException {
+        final File dir = temporaryFolder.newFolder();
+        new PageArchiveWriter(dir).close();
+        new PageArchiveWriter(dir);
+    }
+
+    private static byte[] bytes(final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(final byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,53 @@
+package com.indeed.jiraactions.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class TestAppendOnlyList {
+    @Test
+    public void testAppendingKeepsEarlierLists() {
+        AppendOnlyList<Integer> list = AppendOnlyList.of();
+        final AppendOnlyList<Integer> first = list.plus(0);
+        list = first;
+        for (int i = 1; i < 100; i++) {
+            list = list.plus(i);
+        }
+
+        Assert.assertEquals(100, list.size());
+        Assert.assertEquals(Integer.valueOf(99), list.get(99));
+        Assert.assertEquals(Collections.singletonList(0), first);
+    }
+
+    @Test
+    public void testBranchesDontSeeEachOther() {
+        final AppendOnlyList<String> base = AppendOnlyList.of("Open").plus("In Progress");
+        final AppendOnlyList<String> closed = base.plus("Closed");
+        final AppendOnlyList<String> reopened = base.plus("Reopened");
+
+        Assert.assertEquals(Arrays.asList("Open", "In Progress"), base);
+        Assert.assertEquals(Arrays.asList("Open", "In Progress", "Closed"), closed);
+        Assert.assertEquals(Arrays.asList("Open", "In Progress", "Reopened"), reopened);
+        Assert.assertEquals(Arrays.asList("Open", "In Progress", "Closed", "Done"), closed.plus("Done"));
+    }
+
+    @Test
+    public void testCopyOf() {
+        final AppendOnlyList<String> list = AppendOnlyList.of("Open");
+        Assert.assertSame(list, AppendOnlyList.copyOf(list));
+
+        final AppendOnlyList<String> copy = AppendOnlyList.copyOf(Arrays.asList("Open", "In Progress"));
+        Assert.assertEquals(Arrays.asList("Open", "In Progress"), copy);
+        Assert.assertEquals(Arrays.asList("Open", "In Progress", "Closed"), copy.plus("Closed"));
+        Assert.assertEquals(Collections.emptyList(), AppendOnlyList.copyOf(Collections.emptyList()));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testNoPeekingPastTheEnd() {
+        final AppendOnlyList<String> base = AppendOnlyList.of("Open");
+        base.plus("Closed");
+        base.get(1);
+    }
+}
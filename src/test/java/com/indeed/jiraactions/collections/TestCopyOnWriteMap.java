@@ -0,0 +1,26 @@
+package com.indeed.jiraactions.collections;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class TestCopyOnWriteMap {
+    @Test
+    public void testChangesCopy() {
+        final CopyOnWriteMap<String, Integer> open = CopyOnWriteMap.of("Open", 1);
+        final CopyOnWriteMap<String, Integer> closed = open.plusAll(ImmutableMap.of("Open", 2, "Closed", 3));
+
+        Assert.assertEquals(Collections.singletonMap("Open", 1), open);
+        Assert.assertEquals(ImmutableMap.of("Open", 2, "Closed", 3), closed);
+    }
+
+    @Test
+    public void testNoChangesShare() {
+        final Integer one = 1;
+        final CopyOnWriteMap<String, Integer> open = CopyOnWriteMap.of("Open", one);
+        Assert.assertSame(open, open.plusAll(Collections.singletonMap("Open", one)));
+        Assert.assertSame(open, open.plusAll(Collections.emptyMap()));
+    }
+}